@@ -49,6 +49,9 @@ import org.apache.solr.common.util.IOUtils;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.apache.solr.common.util.SuppressForbidden;
+import org.apache.solr.core.CoreContainer;
+import org.apache.solr.core.CoreDescriptor;
+import org.apache.solr.core.SolrCore;
 import org.apache.solr.embedded.JettySolrRunner;
 import org.apache.solr.util.SolrTestNonSecureRandomProvider;
 import org.openjdk.jmh.annotations.Level;
@@ -507,6 +510,23 @@ public class MiniClusterState {
       }
     }
 
+    /**
+     * Opens a core of the collection for benchmarks that exercise core internals directly. The
+     * caller must close it.
+     *
+     * @param collection the collection
+     * @return a core of the collection hosted on the first node
+     */
+    public SolrCore openCore(String collection) {
+      CoreContainer cores = cluster.getJettySolrRunner(0).getCoreContainer();
+      for (CoreDescriptor cd : cores.getCoreDescriptors()) {
+        if (collection.equals(cd.getCollectionName())) {
+          return cores.getCore(cd.getName());
+        }
+      }
+      throw new IllegalStateException("No core of " + collection + " on the first node");
+    }
+
     /**
      * Dump core info.
      *
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.bench.search;
+
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.solr.bench.BaseBenchState;
+import org.apache.solr.bench.SolrRandomnessSource;
+import org.apache.solr.bench.SplittableRandomGenerator;
+import org.apache.solr.bench.generators.SolrGen;
+import org.apache.solr.search.BitDocSet;
+import org.apache.solr.search.DocIterator;
+import org.apache.solr.search.DocSet;
+import org.apache.solr.search.DocSetBuilder;
+import org.apache.solr.search.DocSetUtil;
+import org.apache.solr.search.RoaringDocSet;
+import org.apache.solr.search.SortedIntDocSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quicktheories.impl.BenchmarkRandomSource;
+
+/**
+ * Isolates the {@link DocSet} operations of the filter path (intersections, conversions between
+ * representations, {@link DocSetBuilder} growth) from query parsing and caching.
+ *
+ * <p>Run with {@code -prof gc} to also report the allocation rate, e.g. {@code ./jmh.sh -prof gc
+ * DocSetOperations}.
+ */
+@Fork(value = 1)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(time = 1, iterations = 5)
+@Measurement(time = 1, iterations = 5)
+@Threads(value = 1)
+public class DocSetOperations {
+
+  @State(Scope.Benchmark)
+  public static class BenchState {
+
+    @Param({"1000000", "10000000"})
+    int maxDoc;
+
+    /**
+     * The fraction of matching docs of the two sets, as "a:b". Below 1/64 the sets are small
+     * enough to be kept as a {@link SortedIntDocSet} by the filterCache.
+     */
+    @Param({"0.001:0.1", "0.01:0.5", "0.1:0.1", "0.5:0.5"})
+    String densities;
+
+    BitDocSet bitA;
+    BitDocSet bitB;
+    DocSet sortedA;
+    DocSet sortedB;
+    RoaringDocSet roaringA;
+    RoaringDocSet roaringB;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      SolrRandomnessSource random =
+          new BenchmarkRandomSource(new SplittableRandomGenerator(BaseBenchState.getRandomSeed()));
+      String[] split = densities.split(":");
+      bitA = randomBits(random, Double.parseDouble(split[0]));
+      bitB = randomBits(random, Double.parseDouble(split[1]));
+      sortedA = DocSetUtil.toSmallSet(bitA);
+      sortedB = DocSetUtil.toSmallSet(bitB);
+      roaringA = RoaringDocSet.fromBits(bitA.getBits());
+      roaringB = RoaringDocSet.fromBits(bitB.getBits());
+    }
+
+    private BitDocSet randomBits(SolrRandomnessSource random, double density) {
+      final int threshold = (int) Math.round(density * 1_000_000);
+      SolrGen<Boolean> matches =
+          new SolrGen<>() {
+            @Override
+            public Boolean generate(SolrRandomnessSource in) {
+              return in.next(0, 1_000_000) < threshold;
+            }
+          };
+      FixedBitSet bits = new FixedBitSet(maxDoc);
+      for (int doc = 0; doc < maxDoc; doc++) {
+        if (matches.generate(random)) {
+          bits.set(doc);
+        }
+      }
+      return new BitDocSet(bits);
+    }
+  }
+
+  @Benchmark
+  public int intersectionSizeBitBit(BenchState state) {
+    return state.bitA.intersectionSize(state.bitB);
+  }
+
+  @Benchmark
+  public int intersectionSizeSortedBit(BenchState state) {
+    return state.sortedA.intersectionSize(state.bitB);
+  }
+
+  @Benchmark
+  public int intersectionSizeSortedSorted(BenchState state) {
+    return state.sortedA.intersectionSize(state.sortedB);
+  }
+
+  @Benchmark
+  public int intersectionSizeRoaringBit(BenchState state) {
+    return state.roaringA.intersectionSize(state.bitB);
+  }
+
+  @Benchmark
+  public int intersectionSizeRoaringRoaring(BenchState state) {
+    return state.roaringA.intersectionSize(state.roaringB);
+  }
+
+  @Benchmark
+  public DocSet intersectionBitBit(BenchState state) {
+    return state.bitA.intersection(state.bitB);
+  }
+
+  @Benchmark
+  public DocSet intersectionSortedBit(BenchState state) {
+    return state.sortedA.intersection(state.bitB);
+  }
+
+  @Benchmark
+  public DocSet intersectionSortedSorted(BenchState state) {
+    return state.sortedA.intersection(state.sortedB);
+  }
+
+  @Benchmark
+  public DocSet unionBitBit(BenchState state) {
+    return state.bitA.union(state.bitB);
+  }
+
+  @Benchmark
+  public DocSet andNotBitBit(BenchState state) {
+    return state.bitA.andNot(state.bitB);
+  }
+
+  @Benchmark
+  public DocSet bitToSorted(BenchState state) {
+    return DocSetUtil.toSmallSet(state.bitA);
+  }
+
+  @Benchmark
+  public DocSet sortedToBit(BenchState state) {
+    FixedBitSet bits = new FixedBitSet(state.maxDoc);
+    state.sortedA.addAllTo(bits);
+    return new BitDocSet(bits, state.sortedA.size());
+  }
+
+  @Benchmark
+  public DocSet bitToRoaring(BenchState state) {
+    return RoaringDocSet.fromBits(state.bitA.getBits());
+  }
+
+  /** The builder starts from a low cost estimate, so it has to grow its buffer. */
+  @Benchmark
+  public DocSet builderGrowth(BenchState state) {
+    return buildFrom(state.sortedA, new DocSetBuilder(state.maxDoc, 16));
+  }
+
+  /** Same as {@link #builderGrowth} with an exact cost estimate, as a baseline. */
+  @Benchmark
+  public DocSet builderExactCost(BenchState state) {
+    return buildFrom(state.sortedA, new DocSetBuilder(state.maxDoc, state.sortedA.size()));
+  }
+
+  private static DocSet buildFrom(DocSet docs, DocSetBuilder builder) {
+    for (DocIterator it = docs.iterator(); it.hasNext(); ) {
+      int doc = it.nextDoc();
+      builder.grow(1);
+      builder.add(doc);
+    }
+    return builder.build(null);
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.bench.search;
+
+import static org.apache.solr.bench.generators.SourceDSL.integers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.solr.bench.Docs;
+import org.apache.solr.bench.MiniClusterState;
+import org.apache.solr.bench.SolrRandomnessSource;
+import org.apache.solr.bench.generators.SolrGen;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.RefCounted;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Calls {@link SolrIndexSearcher#getProcessedFilter(List)} directly on a core, leaving out request
+ * parsing and response writing, to measure how filters are turned into DocSets with and without
+ * the filterCache. Run with {@code -prof gc} to also report the allocation rate.
+ */
+@Fork(value = 1)
+@Warmup(time = 1, iterations = 5)
+@Measurement(time = 1, iterations = 5)
+@Threads(value = 1)
+public class FilterProcessing {
+
+  static final String COLLECTION = "c1";
+
+  /** Percentage of docs matching the filter on each field. */
+  static final int[] DENSITIES = {1, 10, 30, 50, 90};
+
+  /** Enough filterCache entries to hold every filter. */
+  static final String FILTER_CACHE_SIZE = "512";
+
+  /** Enough segments for the searcher to have several slices to search in parallel. */
+  static final int SEGMENTS = 8;
+
+  @State(Scope.Benchmark)
+  public static class BenchState {
+
+    @Param({"true", "false"})
+    String filterCacheEnabled;
+
+    /** The number of filters, one per field, starting from the sparsest. */
+    @Param({"1", "3", "5"})
+    int filters;
+
+    @Param({"10000", "100000", "1000000"})
+    int docCount;
+
+    /**
+     * Term filters are read from the postings directly. Prefix filters match the same docs with a
+     * search, which is collected per slice in parallel when searchThreads is set.
+     */
+    @Param({"term", "prefix"})
+    String queryType;
+
+    /** indexSearcherExecutorThreads: 0 searches the slices serially. */
+    @Param({"0", "4"})
+    String searchThreads;
+
+    List<Query> queries;
+    SolrCore core;
+    RefCounted<SolrIndexSearcher> searcher;
+
+    @Setup(Level.Trial)
+    public void setupTrial(MiniClusterState.MiniClusterBenchState miniClusterState)
+        throws Exception {
+      System.setProperty("filterCache.enabled", filterCacheEnabled);
+      // the cloud-minimal configset sizes the filterCache to a single entry by default
+      System.setProperty("filterCache.size", FILTER_CACHE_SIZE);
+      System.setProperty("filterCache.initialSize", FILTER_CACHE_SIZE);
+      System.setProperty("solr.searchThreads", searchThreads);
+
+      miniClusterState.startMiniCluster(1);
+      miniClusterState.createCollection(COLLECTION, 1, 1);
+
+      Docs docs = Docs.docs().field("id", integers().incrementing());
+      for (int density : DENSITIES) {
+        docs.field("d" + density + "_b", booleans(density));
+      }
+      miniClusterState.index(COLLECTION, docs, docCount);
+      // the same segments with and without searchThreads, so that only the executor differs
+      miniClusterState.forceMerge(COLLECTION, SEGMENTS);
+
+      queries = new ArrayList<>(filters);
+      for (int i = 0; i < filters; i++) {
+        Term term = new Term("d" + DENSITIES[i] + "_b", "T");
+        queries.add("prefix".equals(queryType) ? new PrefixQuery(term) : new TermQuery(term));
+      }
+
+      core = miniClusterState.openCore(COLLECTION);
+      searcher = core.getSearcher();
+    }
+
+    @TearDown(Level.Trial)
+    public void teardownTrial() {
+      if (searcher != null) searcher.decref();
+      if (core != null) core.close();
+      System.clearProperty("filterCache.enabled");
+      System.clearProperty("filterCache.size");
+      System.clearProperty("filterCache.initialSize");
+      System.clearProperty("solr.searchThreads");
+    }
+
+    private static SolrGen<Boolean> booleans(int density) {
+      return new SolrGen<>() {
+        @Override
+        public Boolean generate(SolrRandomnessSource in) {
+          return in.next(0, 100) < density;
+        }
+      };
+    }
+  }
+
+  @Benchmark
+  public Object processedFilter(BenchState benchState) throws IOException {
+    return benchState.searcher.get().getProcessedFilter(benchState.queries);
+  }
+
+  @Benchmark
+  public Object docSet(BenchState benchState) throws IOException {
+    return benchState.searcher.get().getDocSet(benchState.queries);
+  }
+}
@@ -64,6 +64,7 @@ import org.apache.solr.common.MapSerializable;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrException.ErrorCode;
 import org.apache.solr.common.util.IOUtils;
+import org.apache.solr.common.util.StrUtils;
 import org.apache.solr.common.util.Utils;
 import org.apache.solr.handler.component.SearchComponent;
 import org.apache.solr.pkg.PackageListeners;
@@ -298,6 +299,19 @@ public class SolrConfig implements MapSerializable {
       queryResultMaxDocsCached =
           get("query").get("queryResultMaxDocsCached").intVal(Integer.MAX_VALUE);
       enableLazyFieldLoading = get("query").get("enableLazyFieldLoading").boolVal(false);
+      requestDocumentCacheSize = get("query").get("requestDocumentCacheSize").intVal(0);
+      perSegmentUninvertedFacets =
+          get("query").get("perSegmentUninvertedFacets").boolVal(false);
+      ConfigNode segmentFilterCache = get("query").get("segmentFilterCache");
+      segmentFilterCacheEnabled = segmentFilterCache.boolAttr("enabled", false);
+      segmentFilterCacheMaxRamMB = segmentFilterCache.intAttr("maxRamMB", 256);
+      ConfigNode ordinalMapCache = get("query").get("ordinalMapCache");
+      ordinalMapCacheEnabled = ordinalMapCache.boolAttr("enabled", false);
+      String warmFields = ordinalMapCache.attr("warmFields");
+      ordinalMapCacheWarmFields =
+          warmFields == null ? List.of() : StrUtils.splitSmart(warmFields, ',', true);
+      filterCacheOffHeap = get("query").get("filterCache").boolAttr("offHeap", false);
+      filterCacheCompress = get("query").get("filterCache").boolAttr("compress", false);
 
       filterCacheConfig =
           CacheConfig.getConfig(this, get("query").get("filterCache"), "query/filterCache");
@@ -674,6 +688,36 @@ public class SolrConfig implements MapSerializable {
   public final int queryResultMaxDocsCached;
   public final boolean enableLazyFieldLoading;
 
+  /**
+   * Max number of stored documents kept for the duration of a request when there is no
+   * documentCache, so that components reading the same doc decode it once. 0 disables it.
+   */
+  public final int requestDocumentCacheSize;
+
+  /**
+   * Whether JSON terms facets on multi-valued fields without docValues use per-segment uninverted
+   * values, which are reused by the next searchers, rather than a top-level {@code
+   * UnInvertedField} that is rebuilt for each searcher.
+   */
+  public final boolean perSegmentUninvertedFacets;
+
+  /** Whether filterCache misses are computed from a per-segment cache that survives commits. */
+  public final boolean segmentFilterCacheEnabled;
+
+  public final int segmentFilterCacheMaxRamMB;
+
+  /** Whether searchers share the ordinal maps of docValues fields when segments did not change. */
+  public final boolean ordinalMapCacheEnabled;
+
+  /** Fields whose ordinal map is built while new searchers warm. */
+  public final List<String> ordinalMapCacheWarmFields;
+
+  /** Whether large filterCache entries are stored in direct memory as {@code OffHeapBitDocSet}. */
+  public final boolean filterCacheOffHeap;
+
+  /** Whether medium density filterCache entries are compressed as {@code RoaringDocSet}. */
+  public final boolean filterCacheCompress;
+
   // IndexConfig settings
   public final SolrIndexConfig indexConfig;
 
@@ -797,10 +841,14 @@ public class SolrConfig implements MapSerializable {
         autoCommmitMaxTime,
         autoSoftCommmitMaxDocs,
         autoSoftCommmitMaxTime;
+    // how far autoSoftCommit's maxTime may be stretched when commits are slow, or -1
+    public final int autoSoftCommitMaxAdaptiveTime;
     public final long autoCommitMaxSizeBytes;
     public final boolean openSearcher; // is opening a new searcher part of hard autocommit?
     public final boolean commitWithinSoftCommit;
     public final boolean aggregateNodeLevelMetricsEnabled;
+    // are the searchers of commits opened and warmed in the background?
+    public final boolean asyncOpenSearcher;
 
     /**
      * @param autoCommmitMaxDocs set -1 as default
@@ -824,9 +872,11 @@ public class SolrConfig implements MapSerializable {
 
       this.autoSoftCommmitMaxDocs = autoSoftCommmitMaxDocs;
       this.autoSoftCommmitMaxTime = autoSoftCommmitMaxTime;
+      this.autoSoftCommitMaxAdaptiveTime = -1;
 
       this.commitWithinSoftCommit = commitWithinSoftCommit;
       this.aggregateNodeLevelMetricsEnabled = false;
+      this.asyncOpenSearcher = false;
     }
 
     public UpdateHandlerInfo(ConfigNode updateHandler) {
@@ -839,10 +889,13 @@ public class SolrConfig implements MapSerializable {
       this.openSearcher = autoCommit.get("openSearcher").boolVal(true);
       this.autoSoftCommmitMaxDocs = updateHandler.get("autoSoftCommit").get("maxDocs").intVal(-1);
       this.autoSoftCommmitMaxTime = updateHandler.get("autoSoftCommit").get("maxTime").intVal(-1);
+      this.autoSoftCommitMaxAdaptiveTime =
+          updateHandler.get("autoSoftCommit").get("maxAdaptiveTime").intVal(-1);
       this.commitWithinSoftCommit =
           updateHandler.get("commitWithin").get("softCommit").boolVal(true);
       this.aggregateNodeLevelMetricsEnabled =
           updateHandler.boolAttr("aggregateNodeLevelMetricsEnabled", false);
+      this.asyncOpenSearcher = updateHandler.boolAttr("asyncOpenSearcher", false);
     }
 
     @Override
@@ -856,7 +909,11 @@ public class SolrConfig implements MapSerializable {
               "openSearcher", openSearcher));
       map.put(
           "autoSoftCommit",
-          Map.of("maxDocs", autoSoftCommmitMaxDocs, "maxTime", autoSoftCommmitMaxTime));
+          Map.of(
+              "maxDocs", autoSoftCommmitMaxDocs,
+              "maxTime", autoSoftCommmitMaxTime,
+              "maxAdaptiveTime", autoSoftCommitMaxAdaptiveTime));
+      map.put("asyncOpenSearcher", asyncOpenSearcher);
       return map;
     }
   }
@@ -970,6 +1027,22 @@ public class SolrConfig implements MapSerializable {
     m.put("queryResultWindowSize", queryResultWindowSize);
     m.put("queryResultMaxDocsCached", queryResultMaxDocsCached);
     m.put("enableLazyFieldLoading", enableLazyFieldLoading);
+    if (requestDocumentCacheSize > 0) {
+      m.put("requestDocumentCacheSize", requestDocumentCacheSize);
+    }
+    if (perSegmentUninvertedFacets) {
+      m.put("perSegmentUninvertedFacets", true);
+    }
+    if (segmentFilterCacheEnabled) {
+      m.put(
+          "segmentFilterCache",
+          Map.of("enabled", true, "maxRamMB", segmentFilterCacheMaxRamMB));
+    }
+    if (ordinalMapCacheEnabled) {
+      m.put(
+          "ordinalMapCache",
+          Map.of("enabled", true, "warmFields", String.join(",", ordinalMapCacheWarmFields)));
+    }
     m.put("maxBooleanClauses", booleanQueryMaxClauseCount);
     m.put(MIN_PREFIX_QUERY_TERM_LENGTH, prefixQueryMinPrefixLength);
 
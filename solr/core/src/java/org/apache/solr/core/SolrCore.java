@@ -111,6 +111,7 @@ import org.apache.solr.handler.admin.api.ReplicationAPIBase;
 import org.apache.solr.handler.api.V2ApiUtils;
 import org.apache.solr.handler.component.HighlightComponent;
 import org.apache.solr.handler.component.SearchComponent;
+import org.apache.solr.index.OrdinalMapCache;
 import org.apache.solr.logging.MDCLoggingContext;
 import org.apache.solr.metrics.SolrCoreMetricManager;
 import org.apache.solr.metrics.SolrMetricProducer;
@@ -143,6 +144,7 @@ import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.ManagedIndexSchema;
 import org.apache.solr.schema.SimilarityFactory;
 import org.apache.solr.search.QParserPlugin;
+import org.apache.solr.search.SegmentFilterCache;
 import org.apache.solr.search.SolrFieldCacheBean;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.ValueSourceParser;
@@ -273,6 +275,12 @@ public class SolrCore implements SolrInfoBean, Closeable {
   private final Map<IndexReader.CacheKey, IndexFingerprint> perSegmentFingerprintCache =
       new WeakHashMap<>();
 
+  // null unless enabled in solrconfig.xml; see SolrConfig.segmentFilterCacheEnabled
+  private final SegmentFilterCache segmentFilterCache;
+
+  // null unless enabled in solrconfig.xml; see SolrConfig.ordinalMapCacheEnabled
+  private final OrdinalMapCache ordinalMapCache;
+
   public long getStartNanoTime() {
     return startNanoTime;
   }
@@ -333,6 +341,24 @@ public class SolrCore implements SolrInfoBean, Closeable {
     return solrConfig;
   }
 
+  /**
+   * The per-segment filter cache shared by all searchers of this core, or null if not enabled.
+   *
+   * @lucene.experimental
+   */
+  public SegmentFilterCache getSegmentFilterCache() {
+    return segmentFilterCache;
+  }
+
+  /**
+   * The cache of ordinal maps shared by all searchers of this core, or null if not enabled.
+   *
+   * @lucene.experimental
+   */
+  public OrdinalMapCache getOrdinalMapCache() {
+    return ordinalMapCache;
+  }
+
   /**
    * Gets the schema resource name used by this core instance.
    *
@@ -1073,6 +1099,14 @@ public class SolrCore implements SolrInfoBean, Closeable {
       this.coreProvider = new Provider(coreContainer, getName(), uniqueId);
 
       this.solrConfig = configSet.getSolrConfig();
+      this.segmentFilterCache =
+          solrConfig.segmentFilterCacheEnabled
+              ? new SegmentFilterCache(solrConfig.segmentFilterCacheMaxRamMB * 1024L * 1024L)
+              : null;
+      this.ordinalMapCache =
+          solrConfig.ordinalMapCacheEnabled
+              ? new OrdinalMapCache(solrConfig.ordinalMapCacheWarmFields)
+              : null;
       this.resourceLoader = configSet.getSolrConfig().getResourceLoader();
       this.resourceLoader.setSolrCore(this);
       IndexSchema schema = configSet.getIndexSchema();
@@ -1846,6 +1880,13 @@ public class SolrCore implements SolrInfoBean, Closeable {
       }
     }
 
+    if (segmentFilterCache != null) {
+      segmentFilterCache.close();
+    }
+    if (ordinalMapCache != null) {
+      ordinalMapCache.close();
+    }
+
     try {
       infoRegistry.clear();
     } catch (Throwable e) {
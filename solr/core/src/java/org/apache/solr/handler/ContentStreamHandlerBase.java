@@ -21,12 +21,14 @@ import java.util.List;
 import org.apache.solr.client.solrj.SolrRequest.SolrRequestType;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.params.UpdateParams;
 import org.apache.solr.common.util.ContentStream;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.handler.loader.ContentStreamLoader;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.response.SolrQueryResponse;
 import org.apache.solr.update.SolrCoreState;
+import org.apache.solr.update.processor.PipelinedUpdateProcessor;
 import org.apache.solr.update.processor.UpdateRequestProcessor;
 import org.apache.solr.update.processor.UpdateRequestProcessorChain;
 import org.apache.solr.util.circuitbreaker.CircuitBreaker;
@@ -43,6 +45,9 @@ public abstract class ContentStreamHandlerBase extends RequestHandlerBase {
 
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  /** How many parsed documents may wait for the processor chain when pipelining updates */
+  static final int PIPELINE_QUEUE_SIZE = 100;
+
   @Override
   public void init(NamedList<?> args) {
     super.init(args);
@@ -83,6 +88,13 @@ public abstract class ContentStreamHandlerBase extends RequestHandlerBase {
       UpdateRequestProcessorChain processorChain = req.getCore().getUpdateProcessorChain(params);
 
       UpdateRequestProcessor processor = processorChain.createProcessor(req, rsp);
+      if (req.getContentStreams() != null && params.getBool(UpdateParams.PIPELINE, false)) {
+        processor =
+            new PipelinedUpdateProcessor(
+                processor,
+                req.getCoreContainer().getUpdateShardHandler().getUpdateExecutor(),
+                PIPELINE_QUEUE_SIZE);
+      }
 
       try {
         ContentStreamLoader documentLoader = newLoader(req, processor);
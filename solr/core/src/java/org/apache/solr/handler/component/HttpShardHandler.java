@@ -321,14 +321,14 @@ public class HttpShardHandler extends ShardHandler {
   private ShardResponse take(boolean bailOnError) {
     try {
       while (responsesPending()) {
-        ShardResponse rsp;
+        // Wait outside of the lock, so that the callbacks and the submitting tasks of the
+        // parallel case, which also need it, are not held up while no response has arrived.
+        // The timeout makes us recheck responsesPending() in case all attempts to submit failed.
+        ShardResponse rsp = responses.poll(50, TimeUnit.MILLISECONDS);
+        if (rsp == null) {
+          continue;
+        }
         synchronized (FUTURE_MAP_LOCK) {
-          // in the parallel case we need to recheck responsesPending()
-          // in case all attempts to submit failed.
-          rsp = responses.poll(50, TimeUnit.MILLISECONDS);
-          if (rsp == null) {
-            continue;
-          }
           responseFutureMap.remove(rsp);
           pending.decrementAndGet();
         }
@@ -25,6 +25,7 @@ import java.io.StringWriter;
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -59,6 +60,7 @@ import org.apache.lucene.search.grouping.TopGroups;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.lucene.util.InPlaceMergeSorter;
+import org.apache.lucene.util.PriorityQueue;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.cloud.ZkController;
 import org.apache.solr.common.SolrDocument;
@@ -943,11 +945,18 @@ public class QueryComponent extends SearchComponent {
     // id to shard mapping, to eliminate any accidental dups
     HashMap<Object, String> uniqueDoc = new HashMap<>();
 
-    // Merge the docs via a priority queue so we don't have to sort *all* of the
-    // documents... we only need to order the top (rows+start)
-    final ShardFieldSortedHitQueue queue =
-        new ShardFieldSortedHitQueue(
-            sortFields, ss.getOffset() + ss.getCount(), rb.req.getSearcher());
+    // The docs of each shard arrive in sort order, so they are merged k-way, with the next doc of
+    // each shard competing in a queue; only the top (rows+start) docs are ever looked at.
+    final ShardFieldSortedHitQueue sortOrder =
+        new ShardFieldSortedHitQueue(sortFields, 0, rb.req.getSearcher()); // only compares docs
+    final PriorityQueue<ShardCursor> queue =
+        new PriorityQueue<>(sreq.responses.size()) {
+          @Override
+          protected boolean lessThan(ShardCursor a, ShardCursor b) {
+            // the best doc is on top
+            return sortOrder.lessThan(b.head, a.head);
+          }
+        };
 
     NamedList<Object> shardInfo = null;
     if (rb.req.getParams().getBool(ShardParams.SHARDS_INFO, false)) {
@@ -1113,64 +1122,60 @@ public class QueryComponent extends SearchComponent {
       NamedList<List<Object>> unmarshalledSortFieldValues =
           needsUnmarshalling ? unmarshalSortValues(ss, sortFieldValues, schema) : new NamedList<>();
 
-      // go through every doc in this response, construct a ShardDoc, and
-      // put it in the priority queue so it can be ordered.
+      // go through the ids of every doc in this response to eliminate the dups
+      BitSet dups = null;
       for (int i = 0; i < docs.size(); i++) {
-        SolrDocument doc = docs.get(i);
-        Object id = doc.getFieldValue(uniqueKeyField.getName());
+        Object id = docs.get(i).getFieldValue(uniqueKeyField.getName());
 
         String prevShard = uniqueDoc.put(id, srsp.getShard());
         if (prevShard != null) {
           // duplicate detected
           numFound--;
 
-          // For now, just always use the first encountered since we can't currently
-          // remove the previous one added to the priority queue.  If we switched
-          // to the Java5 PriorityQueue, this would be easier.
-          continue;
-          // make which duplicate is used deterministic based on shard
-          // if (prevShard.compareTo(srsp.shard) >= 0) {
-          //  TODO: remove previous from priority queue
-          //  continue;
-          // }
-        }
-
-        ShardDoc shardDoc = new ShardDoc();
-        shardDoc.id = id;
-        shardDoc.shard = srsp.getShard();
-        shardDoc.orderInShard = i;
-        Object scoreObj = doc.getFieldValue(SolrReturnFields.SCORE);
-        if (scoreObj != null) {
-          if (scoreObj instanceof String) {
-            shardDoc.score = Float.parseFloat((String) scoreObj);
-          } else {
-            shardDoc.score = ((Number) scoreObj).floatValue();
+          // For now, just always use the first encountered, in the order of the responses.
+          if (dups == null) {
+            dups = new BitSet(docs.size());
           }
+          dups.set(i);
         }
-        if (!scoreDependentFields.isEmpty()) {
-          shardDoc.scoreDependentFields = doc.getSubsetOfFields(scoreDependentFields);
-        }
-
-        shardDoc.sortFieldValues = unmarshalledSortFieldValues;
+      }
 
-        queue.insertWithOverflow(shardDoc);
-      } // end for-each-doc-in-response
+      ShardCursor cursor =
+          new ShardCursor(
+              srsp.getShard(), uniqueKeyField.getName(), docs, dups, unmarshalledSortFieldValues);
+      if (cursor.advance(null)) {
+        queue.add(cursor);
+      }
     } // end for-each-response
 
-    // The queue now has 0 -> queuesize docs, where queuesize <= start + rows
-    // So we want to pop the last documents off the queue to get
-    // the docs offset -> queuesize
-    int resultSize = queue.size() - ss.getOffset();
-    resultSize = Math.max(0, resultSize); // there may not be any docs in range
-
+    // Take the docs in order off the heads of the shards, keeping the docs offset -> start + rows
+    final int offset = ss.getOffset();
+    final long end = (long) offset + ss.getCount();
     Map<Object, ShardDoc> resultIds = new HashMap<>();
-    for (int i = resultSize - 1; i >= 0; i--) {
-      ShardDoc shardDoc = queue.pop();
-      shardDoc.positionInResponse = i;
-      // Need the toString() for correlation with other lists that must
-      // be strings (like keys in highlighting, explain, etc)
-      resultIds.put(shardDoc.id.toString(), shardDoc);
+    int position = 0;
+    for (; position < end && queue.size() > 0; position++) {
+      final ShardCursor cursor = queue.top();
+      final ShardDoc shardDoc = cursor.head;
+      ShardDoc spare = null;
+      if (position < offset) {
+        spare = shardDoc; // skipped, so it can hold the next doc of the shard
+      } else {
+        shardDoc.positionInResponse = position - offset;
+        if (!scoreDependentFields.isEmpty()) {
+          shardDoc.scoreDependentFields =
+              cursor.docs.get(shardDoc.orderInShard).getSubsetOfFields(scoreDependentFields);
+        }
+        // Need the toString() for correlation with other lists that must
+        // be strings (like keys in highlighting, explain, etc)
+        resultIds.put(shardDoc.id.toString(), shardDoc);
+      }
+      if (cursor.advance(spare)) {
+        queue.updateTop();
+      } else {
+        queue.pop();
+      }
     }
+    final int resultSize = Math.max(0, position - offset); // there may not be any docs in range
 
     // Add hits for distributed requests
     // https://issues.apache.org/jira/browse/SOLR-3518
@@ -1234,6 +1239,62 @@ public class QueryComponent extends SearchComponent {
     }
   }
 
+  /** The docs of a shard response, in sort order, with the next one to merge as the head. */
+  private static final class ShardCursor {
+    private final String shard;
+    private final String idField;
+    private final SolrDocumentList docs;
+    private final BitSet dups; // null if none
+    private final NamedList<List<Object>> sortFieldValues;
+    private int next;
+    ShardDoc head;
+
+    ShardCursor(
+        String shard,
+        String idField,
+        SolrDocumentList docs,
+        BitSet dups,
+        NamedList<List<Object>> sortFieldValues) {
+      this.shard = shard;
+      this.idField = idField;
+      this.docs = docs;
+      this.dups = dups;
+      this.sortFieldValues = sortFieldValues;
+    }
+
+    /**
+     * Makes the next doc that is not a dup the head, in the given ShardDoc if not null, or returns
+     * false if there is none left.
+     */
+    boolean advance(ShardDoc reuse) {
+      while (next < docs.size() && dups != null && dups.get(next)) {
+        next++;
+      }
+      if (next >= docs.size()) {
+        head = null;
+        return false;
+      }
+      final SolrDocument doc = docs.get(next);
+      final ShardDoc shardDoc = reuse != null ? reuse : new ShardDoc();
+      shardDoc.id = doc.getFieldValue(idField);
+      shardDoc.shard = shard;
+      shardDoc.orderInShard = next;
+      shardDoc.score = Float.NaN;
+      Object scoreObj = doc.getFieldValue(SolrReturnFields.SCORE);
+      if (scoreObj != null) {
+        if (scoreObj instanceof String) {
+          shardDoc.score = Float.parseFloat((String) scoreObj);
+        } else {
+          shardDoc.score = ((Number) scoreObj).floatValue();
+        }
+      }
+      shardDoc.sortFieldValues = sortFieldValues;
+      head = shardDoc;
+      next++;
+      return true;
+    }
+  }
+
   /**
    * Inspects the state of the {@link ResponseBuilder} and populates the next {@link
    * ResponseBuilder#setNextCursorMark} as appropriate based on the merged sort values from
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.index;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.IOSupplier;
+import org.apache.lucene.util.packed.PackedInts;
+import org.apache.solr.common.MapWriter;
+
+/**
+ * A per-core cache of the {@link OrdinalMap}s built by {@link SlowCompositeReaderWrapper}, shared by
+ * the searchers of the core. An ordinal map only depends on the terms of each segment, so a new
+ * searcher over the same segments as the previous one, e.g. after a commit that only deleted
+ * documents or did not touch the field, reuses the map instead of merging the terms of every
+ * segment again.
+ *
+ * <p>Only the map for the latest set of segments is kept for each field, and it is dropped when one
+ * of its segments is closed, so this does not hold more memory than the open searchers already do.
+ * Maps for new segments may be built eagerly while a new searcher warms.
+ *
+ * @lucene.experimental
+ */
+public class OrdinalMapCache implements Accountable {
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final Set<IndexReader.CacheKey> trackedCores = ConcurrentHashMap.newKeySet();
+  private final List<String> warmFields;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder uncacheable = new LongAdder();
+
+  /**
+   * @param warmFields fields whose ordinal map is built when a new searcher warms
+   */
+  public OrdinalMapCache(List<String> warmFields) {
+    this.warmFields = List.copyOf(warmFields);
+  }
+
+  /** Returns the ordinal map of these sorted values of the leaves, building it if needed. */
+  public OrdinalMap getOrdinalMap(
+      String field, List<LeafReaderContext> leaves, SortedDocValues[] values) throws IOException {
+    return getOrdinalMap(
+        field, leaves, false, () -> OrdinalMap.build(null, values, PackedInts.DEFAULT));
+  }
+
+  /** Returns the ordinal map of these sorted set values of the leaves, building it if needed. */
+  public OrdinalMap getOrdinalMap(
+      String field, List<LeafReaderContext> leaves, SortedSetDocValues[] values)
+      throws IOException {
+    return getOrdinalMap(
+        field, leaves, true, () -> OrdinalMap.build(null, values, PackedInts.DEFAULT));
+  }
+
+  private OrdinalMap getOrdinalMap(
+      String field, List<LeafReaderContext> leaves, boolean sortedSet, IOSupplier<OrdinalMap> build)
+      throws IOException {
+    final IndexReader.CacheHelper[] cacheHelpers = new IndexReader.CacheHelper[leaves.size()];
+    final IndexReader.CacheKey[] coreKeys = new IndexReader.CacheKey[leaves.size()];
+    for (int i = 0; i < coreKeys.length; i++) {
+      cacheHelpers[i] = leaves.get(i).reader().getCoreCacheHelper();
+      if (cacheHelpers[i] == null) {
+        uncacheable.increment();
+        return build.get();
+      }
+      coreKeys[i] = cacheHelpers[i].getKey();
+    }
+
+    Entry entry = entries.get(field);
+    if (entry != null && entry.sortedSet == sortedSet && Arrays.equals(entry.coreKeys, coreKeys)) {
+      hits.increment();
+      return entry.map;
+    }
+    misses.increment();
+    OrdinalMap map = build.get();
+    for (IndexReader.CacheHelper cacheHelper : cacheHelpers) {
+      track(cacheHelper);
+    }
+    entries.put(field, new Entry(sortedSet, coreKeys, map));
+    return map;
+  }
+
+  /**
+   * Builds the ordinal maps of the warm fields for the reader of a new searcher.
+   *
+   * @param reader the top-level reader of the searcher, as wrapped by {@link
+   *     SlowCompositeReaderWrapper}
+   */
+  public void warm(LeafReader reader) throws IOException {
+    for (String field : warmFields) {
+      FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(field);
+      if (fieldInfo == null) {
+        continue;
+      }
+      if (fieldInfo.getDocValuesType() == DocValuesType.SORTED) {
+        reader.getSortedDocValues(field);
+      } else if (fieldInfo.getDocValuesType() == DocValuesType.SORTED_SET) {
+        reader.getSortedSetDocValues(field);
+      }
+    }
+  }
+
+  private void track(IndexReader.CacheHelper cacheHelper) {
+    if (trackedCores.add(cacheHelper.getKey())) {
+      cacheHelper.addClosedListener(this::onCoreClosed);
+    }
+  }
+
+  private void onCoreClosed(IndexReader.CacheKey coreKey) {
+    trackedCores.remove(coreKey);
+    entries.values().removeIf(e -> Arrays.asList(e.coreKeys).contains(coreKey));
+  }
+
+  /** Writes statistics, suitable for a {@link org.apache.solr.metrics.MetricsMap}. */
+  public void writeStats(MapWriter.EntryWriter map) throws IOException {
+    map.put("hits", hits.sum());
+    map.put("misses", misses.sum());
+    map.put("uncacheable", uncacheable.sum());
+    map.put("size", entries.size());
+    map.put("ramBytesUsed", ramBytesUsed());
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    long bytes = 0;
+    for (Entry entry : entries.values()) {
+      bytes += entry.map.ramBytesUsed();
+    }
+    return bytes;
+  }
+
+  public void close() {
+    entries.clear();
+    trackedCores.clear();
+  }
+
+  private static final class Entry {
+    final boolean sortedSet;
+    final IndexReader.CacheKey[] coreKeys;
+    final OrdinalMap map;
+
+    Entry(boolean sortedSet, IndexReader.CacheKey[] coreKeys, OrdinalMap map) {
+      this.sortedSet = sortedSet;
+      this.coreKeys = coreKeys;
+      this.map = map;
+    }
+  }
+}
@@ -80,13 +80,27 @@ public final class SlowCompositeReaderWrapper extends LeafReader {
   // but do we really need to optimize slow-wrapper any more?
   final Map<String, OrdinalMap> cachedOrdMaps = new ConcurrentHashMap<>();
 
+  // shares ordinal maps with the other readers of the same core, may be null
+  private final OrdinalMapCache ordinalMapCache;
+
   /**
    * This method is sugar for getting an {@link LeafReader} from an {@link IndexReader} of any kind.
    * If the reader is already atomic, it is returned unchanged, otherwise wrapped by this class.
    */
   public static LeafReader wrap(IndexReader reader) throws IOException {
+    return wrap(reader, null);
+  }
+
+  /**
+   * Like {@link #wrap(IndexReader)}, looking up the ordinal maps of sorted and sorted set doc values
+   * in the given cache.
+   *
+   * @param ordinalMapCache the cache of ordinal maps, or null
+   */
+  public static LeafReader wrap(IndexReader reader, OrdinalMapCache ordinalMapCache)
+      throws IOException {
     if (reader instanceof CompositeReader) {
-      return new SlowCompositeReaderWrapper((CompositeReader) reader);
+      return new SlowCompositeReaderWrapper((CompositeReader) reader, ordinalMapCache);
     } else {
       assert reader instanceof LeafReader;
       return (LeafReader) reader;
@@ -94,7 +108,13 @@ public final class SlowCompositeReaderWrapper extends LeafReader {
   }
 
   SlowCompositeReaderWrapper(CompositeReader reader) throws IOException {
+    this(reader, null);
+  }
+
+  SlowCompositeReaderWrapper(CompositeReader reader, OrdinalMapCache ordinalMapCache)
+      throws IOException {
     in = reader;
+    this.ordinalMapCache = ordinalMapCache;
     in.registerParentReader(this);
     if (reader.leaves().isEmpty()) {
       metaData = new LeafMetaData(Version.LATEST.major, Version.LATEST, null, false);
@@ -214,6 +234,9 @@ public final class SlowCompositeReaderWrapper extends LeafReader {
     Function<? super String, ? extends OrdinalMap> producer =
         (notUsed) -> {
           try {
+            if (ordinalMapCache != null) {
+              return ordinalMapCache.getOrdinalMap(field, leaves, values);
+            }
             OrdinalMap mapping =
                 OrdinalMap.build(
                     cacheHelper == null ? null : cacheHelper.getKey(), values, PackedInts.DEFAULT);
@@ -286,6 +309,9 @@ public final class SlowCompositeReaderWrapper extends LeafReader {
     Function<? super String, ? extends OrdinalMap> producer =
         (notUsed) -> {
           try {
+            if (ordinalMapCache != null) {
+              return ordinalMapCache.getOrdinalMap(field, leaves, values);
+            }
             OrdinalMap mapping =
                 OrdinalMap.build(
                     cacheHelper == null ? null : cacheHelper.getKey(), values, PackedInts.DEFAULT);
@@ -181,7 +181,14 @@ public class JavaBinResponseWriter implements QueryResponseWriter {
     }
   }
 
-  static class MaskCharSeqSolrDocument extends SolrDocument {
+  /**
+   * A document that may hold {@link org.apache.solr.common.util.Utf8CharSequence} values (see
+   * {@link ResultContext#READASBYTES}) so they can be written without decoding, but hands out
+   * Strings to anything else reading it.
+   *
+   * @lucene.internal
+   */
+  public static class MaskCharSeqSolrDocument extends SolrDocument {
     /** Get the value or collection of values for a given field. */
     @Override
     public Object getFieldValue(String name) {
@@ -33,6 +33,7 @@ import org.apache.lucene.search.LeafCollector;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.BitSetIterator;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.FixedBitSet;
@@ -146,6 +147,13 @@ public class DocSetUtil {
       throws IOException {
 
     int maxDoc = searcher.getIndexReader().maxDoc();
+
+    if (searcher.getSlices().length > 1) {
+      // the searcher has an executor: collect the slices in parallel
+      FixedBitSet bits = new MultiThreadedSearcher(searcher).searchDocSetBits(query);
+      return getDocSet(toDocSet(bits, maxDoc), searcher);
+    }
+
     DocSetCollector collector = new DocSetCollector(maxDoc);
 
     // This may throw an ExitableDirectoryReader.ExitingReaderException
@@ -156,6 +164,20 @@ public class DocSetUtil {
     return getDocSet(collector, searcher);
   }
 
+  /** Uses the bits as a DocSet, or copies them into a SortedIntDocSet if they are few. */
+  private static DocSet toDocSet(FixedBitSet bits, int maxDoc) {
+    int size = bits.cardinality();
+    if (size > smallSetSize(maxDoc)) {
+      return new BitDocSet(bits, size);
+    }
+    int[] docs = new int[size];
+    BitSetIterator iter = new BitSetIterator(bits, size);
+    for (int i = 0; i < size; i++) {
+      docs[i] = iter.nextDoc();
+    }
+    return new SortedIntDocSet(docs);
+  }
+
   public static DocSet createDocSet(SolrIndexSearcher searcher, Term term) throws IOException {
     DirectoryReader reader = searcher.getRawReader(); // raw reader to avoid extra wrapping overhead
     int maxDoc = searcher.getIndexReader().maxDoc();
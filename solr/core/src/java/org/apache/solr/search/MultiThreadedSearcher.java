@@ -119,6 +119,24 @@ public class MultiThreadedSearcher {
     return new SearchResult(scoreMode, ret);
   }
 
+  /**
+   * Collects the documents matching a query into a bit set, with one collector per slice of the
+   * searcher so that slices are searched in parallel on its executor. The per-slice bit sets are
+   * merged once all slices are done.
+   */
+  FixedBitSet searchDocSetBits(Query query) throws IOException {
+    final int maxDoc = searcher.getRawReader().maxDoc();
+    try {
+      return (FixedBitSet) searcher.search(query, new DocSetCM(maxDoc));
+    } catch (RuntimeException ex) {
+      if (ex.getCause() instanceof ExecutionException
+          && ex.getCause().getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause().getCause();
+      }
+      throw ex;
+    }
+  }
+
   static boolean allowMT(DelegatingCollector postFilter, QueryCommand cmd) {
     // TODO: it's unclear if segmentTerminateEarly is truly incompatible but
     //  since it has to appropriately denote partial results this needs to be
@@ -144,6 +162,11 @@ public class MultiThreadedSearcher {
     @SuppressWarnings("JdkObsolete")
     private final LinkedList<Integer> skipBits = new LinkedList<>();
 
+    // the leaf being collected
+    private FixedBitSet bitSet;
+    private int skipBit;
+    private int numBits;
+
     FixedBitSetCollector() {}
 
     @Override
@@ -151,28 +174,20 @@ public class MultiThreadedSearcher {
       this.bitSets.add(null); // lazy allocate when collecting document(s)
       this.skipWords.add(context.docBase / 64);
       this.skipBits.add(context.docBase % 64);
+      this.bitSet = null;
+      this.skipBit = context.docBase % 64;
+      this.numBits = skipBit + context.reader().maxDoc();
     }
 
     @Override
     public void collect(int doc) throws IOException {
-      FixedBitSet bitSet = this.bitSets.getLast();
-      final int idx = this.skipBits.getLast() + doc;
-
-      final int numWords = FixedBitSet.bits2words(idx + 1); // +1 to ensure minimum 1 word
-
       if (bitSet == null) {
+        // sized for the whole leaf up front rather than grown doc by doc
+        bitSet = new FixedBitSet(numBits);
         this.bitSets.removeLast();
-        bitSet = new FixedBitSet(numWords * 64);
-        this.bitSets.addLast(bitSet);
-
-      } else if (bitSet.getBits().length < numWords) {
-        FixedBitSet smallerBitSet = this.bitSets.removeLast();
-        bitSet = new FixedBitSet(numWords * 64);
-        bitSet.xor(smallerBitSet);
         this.bitSets.addLast(bitSet);
       }
-
-      bitSet.set(idx);
+      bitSet.set(skipBit + doc);
     }
 
     void update(FixedBitSet allBitSet) {
@@ -183,7 +198,7 @@ public class MultiThreadedSearcher {
           final int skipWords = this.skipWords.get(bs_idx);
           final long[] itBits = itBitSet.getBits();
           for (int idx = 0; idx < itBits.length && skipWords + idx < allBits.length; ++idx) {
-            allBits[skipWords + idx] ^= itBits[idx];
+            allBits[skipWords + idx] |= itBits[idx];
           }
         }
       }
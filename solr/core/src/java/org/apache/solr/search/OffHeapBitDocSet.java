@@ -0,0 +1,363 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * An immutable bit set based {@link DocSet} whose words are stored in direct (off-heap) memory.
+ * Meant for large entries of the filterCache: the heap only holds a small wrapper, so turning
+ * over the cache does not churn the old generation. Operations that produce a new set return
+ * regular on-heap DocSets.
+ *
+ * <p>The memory is released when the instance becomes unreachable, so direct memory must be sized
+ * with <code>-XX:MaxDirectMemorySize</code> to fit the cache.
+ *
+ * @see SolrIndexSearcher#getFilterCache()
+ * @lucene.experimental
+ */
+public class OffHeapBitDocSet extends DocSet {
+  private static final long BASE_RAM_BYTES_USED =
+      RamUsageEstimator.shallowSizeOfInstance(OffHeapBitDocSet.class)
+          + 2 * RamUsageEstimator.shallowSizeOfInstance(ByteBuffer.class);
+
+  private final LongBuffer words; // read with absolute gets only, so safe to share
+  private final int numWords;
+  private final int numBits;
+  private final int size;
+
+  private OffHeapBitDocSet(LongBuffer words, int numBits, int size) {
+    this.words = words;
+    this.numWords = FixedBitSet.bits2words(numBits);
+    this.numBits = numBits;
+    this.size = size;
+  }
+
+  /** Copies the bits of a {@link BitDocSet} into direct memory. */
+  public static OffHeapBitDocSet copyOf(BitDocSet docs) {
+    final FixedBitSet bits = docs.getBits();
+    final int numWords = FixedBitSet.bits2words(bits.length());
+    final LongBuffer words =
+        ByteBuffer.allocateDirect(numWords * Long.BYTES)
+            .order(ByteOrder.nativeOrder())
+            .asLongBuffer();
+    words.put(0, bits.getBits(), 0, numWords);
+    return new OffHeapBitDocSet(words, bits.length(), docs.size());
+  }
+
+  /** The number of bytes held in direct memory. */
+  public long offHeapBytesUsed() {
+    return (long) numWords * Long.BYTES;
+  }
+
+  private long word(int i) {
+    return words.get(i);
+  }
+
+  /** Returns the index of the first set bit at or after <code>index</code>, or NO_MORE_DOCS. */
+  public int nextSetBit(int index) {
+    if (index >= numBits) {
+      return DocIdSetIterator.NO_MORE_DOCS;
+    }
+    int i = index >> 6;
+    long word = word(i) >> index; // skip all the bits to the right of index
+    if (word != 0) {
+      return index + Long.numberOfTrailingZeros(word);
+    }
+    while (++i < numWords) {
+      word = word(i);
+      if (word != 0) {
+        return (i << 6) + Long.numberOfTrailingZeros(word);
+      }
+    }
+    return DocIdSetIterator.NO_MORE_DOCS;
+  }
+
+  /** Returns the index of the last set bit at or before <code>index</code>, or -1. */
+  public int prevSetBit(int index) {
+    index = Math.min(index, numBits - 1);
+    if (index < 0) {
+      return -1;
+    }
+    int i = index >> 6;
+    long word = word(i) << (63 - (index & 0x3f)); // skip all the bits to the left of index
+    if (word != 0) {
+      return index - Long.numberOfLeadingZeros(word);
+    }
+    while (--i >= 0) {
+      word = word(i);
+      if (word != 0) {
+        return (i << 6) + 63 - Long.numberOfLeadingZeros(word);
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean exists(int doc) {
+    return doc < numBits && (word(doc >> 6) & (1L << doc)) != 0;
+  }
+
+  @Override
+  public DocIterator iterator() {
+    return new DocIterator() {
+      private int pos = nextSetBit(0);
+
+      @Override
+      public boolean hasNext() {
+        return pos != DocIdSetIterator.NO_MORE_DOCS;
+      }
+
+      @Override
+      public Integer next() {
+        return nextDoc();
+      }
+
+      @Override
+      public int nextDoc() {
+        int old = pos;
+        pos = old + 1 >= numBits ? DocIdSetIterator.NO_MORE_DOCS : nextSetBit(old + 1);
+        return old;
+      }
+
+      @Override
+      public float score() {
+        return 0.0f;
+      }
+    };
+  }
+
+  @Override
+  public DocIdSetIterator iterator(LeafReaderContext context) {
+    final int base;
+    final int max; // one past the max doc
+    if (context.isTopLevel) {
+      if (size == 0) return null;
+      base = 0;
+      max = numBits;
+    } else {
+      final int maxDoc = context.reader().maxDoc();
+      if (maxDoc < 1) return null;
+      base = context.docBase;
+      max = Math.min(base + maxDoc, numBits);
+    }
+
+    return new DocIdSetIterator() {
+      int adjustedDoc = -1;
+
+      @Override
+      public int docID() {
+        return adjustedDoc;
+      }
+
+      @Override
+      public int nextDoc() {
+        return advance(adjustedDoc + 1);
+      }
+
+      @Override
+      public int advance(int target) {
+        int adjusted = target + base;
+        if (target == NO_MORE_DOCS || adjusted >= max) {
+          return adjustedDoc = NO_MORE_DOCS;
+        }
+        int pos = nextSetBit(adjusted);
+        return adjustedDoc = pos < max ? pos - base : NO_MORE_DOCS;
+      }
+
+      @Override
+      public long cost() {
+        // pro-rated for the segment
+        return numBits == 0 ? 0 : (long) size * Math.max(0, max - base) / numBits;
+      }
+    };
+  }
+
+  @Override
+  public DocSet intersection(DocSet other) {
+    if (other instanceof SortedIntDocSet || other instanceof RoaringDocSet) {
+      // iterates the smaller set and probes us
+      return other.intersection(this);
+    }
+    final FixedBitSet newbits = getFixedBitSetClone();
+    if (other instanceof OffHeapBitDocSet o) {
+      final long[] arr = newbits.getBits();
+      final int n = Math.min(numWords, o.numWords);
+      for (int i = 0; i < n; i++) {
+        arr[i] &= o.word(i);
+      }
+      for (int i = n; i < numWords; i++) {
+        arr[i] = 0;
+      }
+    } else {
+      newbits.and(other.getFixedBitSet());
+    }
+    return new BitDocSet(newbits);
+  }
+
+  @Override
+  public int intersectionSize(DocSet other) {
+    if (other instanceof SortedIntDocSet || other instanceof RoaringDocSet) {
+      return other.intersectionSize(this);
+    }
+    int count = 0;
+    if (other instanceof OffHeapBitDocSet o) {
+      final int n = Math.min(numWords, o.numWords);
+      for (int i = 0; i < n; i++) {
+        count += Long.bitCount(word(i) & o.word(i));
+      }
+    } else {
+      final long[] arr = other.getFixedBitSet().getBits();
+      final int n = Math.min(numWords, arr.length);
+      for (int i = 0; i < n; i++) {
+        count += Long.bitCount(word(i) & arr[i]);
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public boolean intersects(DocSet other) {
+    if (other instanceof SortedIntDocSet || other instanceof RoaringDocSet) {
+      return other.intersects(this);
+    }
+    if (other instanceof OffHeapBitDocSet o) {
+      final int n = Math.min(numWords, o.numWords);
+      for (int i = 0; i < n; i++) {
+        if ((word(i) & o.word(i)) != 0) return true;
+      }
+    } else {
+      final long[] arr = other.getFixedBitSet().getBits();
+      final int n = Math.min(numWords, arr.length);
+      for (int i = 0; i < n; i++) {
+        if ((word(i) & arr[i]) != 0) return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public DocSet union(DocSet other) {
+    final FixedBitSet otherBits = other.getFixedBitSet();
+    final FixedBitSet newbits =
+        FixedBitSet.ensureCapacity(getFixedBitSetClone(), otherBits.length());
+    newbits.or(otherBits);
+    return new BitDocSet(newbits);
+  }
+
+  @Override
+  public DocSet andNot(DocSet other) {
+    final FixedBitSet newbits = getFixedBitSetClone();
+    if (other instanceof OffHeapBitDocSet o) {
+      final long[] arr = newbits.getBits();
+      final int n = Math.min(numWords, o.numWords);
+      for (int i = 0; i < n; i++) {
+        arr[i] &= ~o.word(i);
+      }
+    } else {
+      BitDocSet.andNot(newbits, other);
+    }
+    return new BitDocSet(newbits);
+  }
+
+  @Override
+  public void addAllTo(FixedBitSet target) {
+    final long[] arr = target.getBits();
+    final int n = Math.min(numWords, arr.length);
+    for (int i = 0; i < n; i++) {
+      arr[i] |= word(i);
+    }
+  }
+
+  @Override
+  public DocSetQuery makeQuery() {
+    return new DocSetQuery(this);
+  }
+
+  /** Instances are immutable, so the clone shares the same direct memory. */
+  @Override
+  public OffHeapBitDocSet clone() {
+    return new OffHeapBitDocSet(words, numBits, size);
+  }
+
+  @Override
+  public Bits getBits() {
+    return new Bits() {
+      @Override
+      public boolean get(int index) {
+        return exists(index);
+      }
+
+      @Override
+      public int length() {
+        return numBits;
+      }
+    };
+  }
+
+  /** Materializes an on-heap copy. */
+  @Override
+  protected FixedBitSet getFixedBitSet() {
+    return getFixedBitSetClone();
+  }
+
+  @Override
+  protected FixedBitSet getFixedBitSetClone() {
+    final long[] arr = new long[numWords];
+    words.get(0, arr);
+    return new FixedBitSet(arr, numBits);
+  }
+
+  /**
+   * Includes the direct memory, so that a cache bounded by <code>maxRamMB</code> also bounds the
+   * off-heap memory of its entries. Use {@link #offHeapBytesUsed()} for the off-heap part alone.
+   */
+  @Override
+  public long ramBytesUsed() {
+    return BASE_RAM_BYTES_USED + offHeapBytesUsed();
+  }
+
+  @Override
+  public Collection<Accountable> getChildResources() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public String toString() {
+    return "OffHeapBitDocSet{"
+        + "size="
+        + size
+        + ",offHeapUsed="
+        + RamUsageEstimator.humanReadableUnits(offHeapBytesUsed())
+        + '}';
+  }
+}
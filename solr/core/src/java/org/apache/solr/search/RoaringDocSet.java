@@ -0,0 +1,766 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * An immutable compressed {@link DocSet} in the spirit of Roaring bitmaps: the doc id space is
+ * split in blocks of 65536 docs and each non-empty block is stored in whichever of a sorted array,
+ * a bitmap or a list of runs is the smallest. Good for medium density sets (a few percent of
+ * maxDoc) that would waste memory as either a {@link SortedIntDocSet} or a {@link BitDocSet}.
+ *
+ * <p>Operations that produce a new set return {@link SortedIntDocSet} or {@link BitDocSet}.
+ *
+ * @lucene.experimental
+ */
+public class RoaringDocSet extends DocSet {
+  private static final long BASE_RAM_BYTES_USED =
+      RamUsageEstimator.shallowSizeOfInstance(RoaringDocSet.class);
+
+  private static final int BLOCK_SHIFT = 16;
+  private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+  private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+  private static final int WORDS_PER_BLOCK = BLOCK_SIZE >>> 6;
+
+  /** Max cardinality of an array container; beyond it a bitmap is never larger. */
+  private static final int MAX_ARRAY_SIZE = 4096;
+
+  private final Container[] containers; // one per block, null if empty
+  private final int numBits;
+  private final int size;
+
+  private RoaringDocSet(Container[] containers, int numBits, int size) {
+    this.containers = containers;
+    this.numBits = numBits;
+    this.size = size;
+  }
+
+  /** Builds a compressed copy of a bit set. */
+  public static RoaringDocSet fromBits(FixedBitSet bits) {
+    final int numBits = bits.length();
+    final long[] words = bits.getBits();
+    final int numWords = FixedBitSet.bits2words(numBits);
+    final Container[] containers = new Container[(numBits + BLOCK_MASK) >>> BLOCK_SHIFT];
+    int size = 0;
+    for (int block = 0; block < containers.length; block++) {
+      final int from = block * WORDS_PER_BLOCK;
+      final int to = Math.min(from + WORDS_PER_BLOCK, numWords);
+      final long stats = blockStats(words, from, to);
+      final int cardinality = (int) stats;
+      final int runs = (int) (stats >>> 32);
+      if (cardinality == 0) continue;
+      size += cardinality;
+
+      if (isRunSmallest(cardinality, runs)) {
+        containers[block] = RunContainer.build(words, from, to, runs);
+      } else if (cardinality <= MAX_ARRAY_SIZE) {
+        containers[block] = ArrayContainer.build(words, from, to, cardinality);
+      } else {
+        final long[] bitmap = new long[WORDS_PER_BLOCK];
+        System.arraycopy(words, from, bitmap, 0, to - from);
+        containers[block] = new BitmapContainer(bitmap);
+      }
+    }
+    return new RoaringDocSet(containers, numBits, size);
+  }
+
+  /**
+   * Returns a compressed copy of the set if that takes less than {@code maxRatio} of the memory of
+   * the given set, or the set itself otherwise.
+   */
+  public static DocSet compress(BitDocSet docs, float maxRatio) {
+    // sized before building, as dense sets would only be copied to be thrown away
+    return compressedRamBytesUsed(docs.getBits()) < docs.ramBytesUsed() * maxRatio
+        ? fromBits(docs.getBits())
+        : docs;
+  }
+
+  /** Returns the memory that {@link #fromBits} would take for the bit set, without building it. */
+  static long compressedRamBytesUsed(FixedBitSet bits) {
+    final int numBits = bits.length();
+    final long[] words = bits.getBits();
+    final int numWords = FixedBitSet.bits2words(numBits);
+    final int numBlocks = (numBits + BLOCK_MASK) >>> BLOCK_SHIFT;
+    long bytes =
+        BASE_RAM_BYTES_USED
+            + RamUsageEstimator.alignObjectSize(
+                RamUsageEstimator.NUM_BYTES_ARRAY_HEADER
+                    + (long) numBlocks * RamUsageEstimator.NUM_BYTES_OBJECT_REF);
+    for (int block = 0; block < numBlocks; block++) {
+      final int from = block * WORDS_PER_BLOCK;
+      final long stats = blockStats(words, from, Math.min(from + WORDS_PER_BLOCK, numWords));
+      final int cardinality = (int) stats;
+      final int runs = (int) (stats >>> 32);
+      if (cardinality == 0) continue;
+
+      if (isRunSmallest(cardinality, runs)) {
+        bytes += RunContainer.BASE_RAM_BYTES_USED + 2 * charArrayBytes(runs);
+      } else if (cardinality <= MAX_ARRAY_SIZE) {
+        bytes += ArrayContainer.BASE_RAM_BYTES_USED + charArrayBytes(cardinality);
+      } else {
+        bytes +=
+            BitmapContainer.BASE_RAM_BYTES_USED
+                + RamUsageEstimator.alignObjectSize(
+                    RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) WORDS_PER_BLOCK * Long.BYTES);
+      }
+    }
+    return bytes;
+  }
+
+  /** Returns the cardinality of the words in the low int and their runs in the high int. */
+  private static long blockStats(long[] words, int from, int to) {
+    int cardinality = 0;
+    int runs = 0;
+    long prev = 0;
+    for (int i = from; i < to; i++) {
+      final long word = words[i];
+      cardinality += Long.bitCount(word);
+      // a run starts on each set bit whose lower neighbor is clear
+      runs += Long.bitCount(word & ~((word << 1) | (prev >>> 63)));
+      prev = word;
+    }
+    return ((long) runs << 32) | cardinality;
+  }
+
+  private static boolean isRunSmallest(int cardinality, int runs) {
+    final long arrayBytes = (long) cardinality * Character.BYTES;
+    final long runBytes = (long) runs * 2 * Character.BYTES;
+    final long bitmapBytes = (long) WORDS_PER_BLOCK * Long.BYTES;
+    return runBytes < arrayBytes && runBytes < bitmapBytes;
+  }
+
+  private static long charArrayBytes(int length) {
+    return RamUsageEstimator.alignObjectSize(
+        RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) length * Character.BYTES);
+  }
+
+  /** Returns the first doc at or after {@code doc}, or NO_MORE_DOCS */
+  public int nextSetBit(int doc) {
+    if (doc >= numBits) {
+      return DocIdSetIterator.NO_MORE_DOCS;
+    }
+    int block = doc >>> BLOCK_SHIFT;
+    int low = doc & BLOCK_MASK;
+    for (; block < containers.length; block++, low = 0) {
+      final Container c = containers[block];
+      if (c != null) {
+        final int next = c.nextSetBit(low);
+        if (next >= 0) {
+          return (block << BLOCK_SHIFT) | next;
+        }
+      }
+    }
+    return DocIdSetIterator.NO_MORE_DOCS;
+  }
+
+  /** Returns the last doc at or before {@code doc}, or -1 */
+  public int prevSetBit(int doc) {
+    doc = Math.min(doc, numBits - 1);
+    if (doc < 0) {
+      return -1;
+    }
+    int block = doc >>> BLOCK_SHIFT;
+    int low = doc & BLOCK_MASK;
+    for (; block >= 0; block--, low = BLOCK_MASK) {
+      final Container c = containers[block];
+      if (c != null) {
+        final int prev = c.prevSetBit(low);
+        if (prev >= 0) {
+          return (block << BLOCK_SHIFT) | prev;
+        }
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean exists(int doc) {
+    if (doc >= numBits) return false;
+    final Container c = containers[doc >>> BLOCK_SHIFT];
+    return c != null && c.contains(doc & BLOCK_MASK);
+  }
+
+  @Override
+  public DocIterator iterator() {
+    return new DocIterator() {
+      private int pos = nextSetBit(0);
+
+      @Override
+      public boolean hasNext() {
+        return pos != DocIdSetIterator.NO_MORE_DOCS;
+      }
+
+      @Override
+      public Integer next() {
+        return nextDoc();
+      }
+
+      @Override
+      public int nextDoc() {
+        int old = pos;
+        pos = nextSetBit(old + 1);
+        return old;
+      }
+
+      @Override
+      public float score() {
+        return 0.0f;
+      }
+    };
+  }
+
+  @Override
+  public DocIdSetIterator iterator(LeafReaderContext context) {
+    final int base;
+    final int max; // one past the max doc
+    if (context.isTopLevel) {
+      if (size == 0) return null;
+      base = 0;
+      max = numBits;
+    } else {
+      final int maxDoc = context.reader().maxDoc();
+      if (maxDoc < 1) return null;
+      base = context.docBase;
+      max = Math.min(base + maxDoc, numBits);
+    }
+
+    return new DocIdSetIterator() {
+      int adjustedDoc = -1;
+
+      @Override
+      public int docID() {
+        return adjustedDoc;
+      }
+
+      @Override
+      public int nextDoc() {
+        return advance(adjustedDoc + 1);
+      }
+
+      @Override
+      public int advance(int target) {
+        int adjusted = target + base;
+        if (target == NO_MORE_DOCS || adjusted >= max) {
+          return adjustedDoc = NO_MORE_DOCS;
+        }
+        int pos = nextSetBit(adjusted);
+        return adjustedDoc = pos < max ? pos - base : NO_MORE_DOCS;
+      }
+
+      @Override
+      public long cost() {
+        // pro-rated for the segment
+        return numBits == 0 ? 0 : (long) size * Math.max(0, max - base) / numBits;
+      }
+    };
+  }
+
+  /** Builds the smallest of the existing DocSet types for the first {@code len} sorted docs */
+  private DocSet fromSortedDocs(int[] docs, int len) {
+    if (len <= DocSetUtil.smallSetSize(numBits)) {
+      return new SortedIntDocSet(docs, len);
+    }
+    final FixedBitSet bits = new FixedBitSet(numBits);
+    for (int i = 0; i < len; i++) {
+      bits.set(docs[i]);
+    }
+    return new BitDocSet(bits, len);
+  }
+
+  @Override
+  public DocSet intersection(DocSet other) {
+    if (other instanceof SortedIntDocSet) {
+      // iterates the smaller set and probes us
+      return other.intersection(this);
+    }
+    if (other instanceof BitDocSet) {
+      final FixedBitSet bits = ((BitDocSet) other).getBits();
+      final int[] docs = new int[Math.min(size, other.size())];
+      int count = 0;
+      for (int block = 0; block < containers.length; block++) {
+        if (containers[block] != null) {
+          count = containers[block].intersection(bits, block << BLOCK_SHIFT, docs, count);
+        }
+      }
+      return fromSortedDocs(docs, count);
+    }
+    final Bits otherBits = other.getBits();
+    final int[] docs = new int[Math.min(size, other.size())];
+    int count = 0;
+    for (DocIterator it = iterator(); it.hasNext() && count < docs.length; ) {
+      final int doc = it.nextDoc();
+      if (doc < otherBits.length() && otherBits.get(doc)) docs[count++] = doc;
+    }
+    return fromSortedDocs(docs, count);
+  }
+
+  @Override
+  public int intersectionSize(DocSet other) {
+    if (other instanceof SortedIntDocSet) {
+      return other.intersectionSize(this);
+    }
+    if (other instanceof BitDocSet) {
+      final FixedBitSet bits = ((BitDocSet) other).getBits();
+      int count = 0;
+      for (int block = 0; block < containers.length; block++) {
+        if (containers[block] != null) {
+          count += containers[block].intersectionSize(bits, block << BLOCK_SHIFT);
+        }
+      }
+      return count;
+    }
+    final Bits otherBits = other.getBits();
+    int count = 0;
+    for (DocIterator it = iterator(); it.hasNext(); ) {
+      final int doc = it.nextDoc();
+      if (doc < otherBits.length() && otherBits.get(doc)) count++;
+    }
+    return count;
+  }
+
+  @Override
+  public boolean intersects(DocSet other) {
+    if (other instanceof SortedIntDocSet) {
+      return other.intersects(this);
+    }
+    if (other instanceof BitDocSet) {
+      final FixedBitSet bits = ((BitDocSet) other).getBits();
+      for (int block = 0; block < containers.length; block++) {
+        if (containers[block] != null
+            && containers[block].intersectionSize(bits, block << BLOCK_SHIFT) > 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+    final Bits otherBits = other.getBits();
+    for (DocIterator it = iterator(); it.hasNext(); ) {
+      final int doc = it.nextDoc();
+      if (doc < otherBits.length() && otherBits.get(doc)) return true;
+    }
+    return false;
+  }
+
+  @Override
+  public DocSet union(DocSet other) {
+    final FixedBitSet otherBits = other.getFixedBitSet();
+    final FixedBitSet newbits =
+        FixedBitSet.ensureCapacity(getFixedBitSetClone(), otherBits.length());
+    newbits.or(otherBits);
+    return new BitDocSet(newbits);
+  }
+
+  @Override
+  public DocSet andNot(DocSet other) {
+    final Bits otherBits = other.getBits();
+    final int[] docs = new int[size];
+    int count = 0;
+    for (DocIterator it = iterator(); it.hasNext(); ) {
+      final int doc = it.nextDoc();
+      if (doc >= otherBits.length() || !otherBits.get(doc)) docs[count++] = doc;
+    }
+    return fromSortedDocs(docs, count);
+  }
+
+  @Override
+  public void addAllTo(FixedBitSet target) {
+    for (int block = 0; block < containers.length; block++) {
+      if (containers[block] != null) {
+        containers[block].addAllTo(target, block << BLOCK_SHIFT);
+      }
+    }
+  }
+
+  @Override
+  public DocSetQuery makeQuery() {
+    return new DocSetQuery(this);
+  }
+
+  /** Instances are immutable, so the clone shares the same containers. */
+  @Override
+  public RoaringDocSet clone() {
+    return new RoaringDocSet(containers, numBits, size);
+  }
+
+  @Override
+  public Bits getBits() {
+    return new Bits() {
+      @Override
+      public boolean get(int index) {
+        return exists(index);
+      }
+
+      @Override
+      public int length() {
+        return numBits;
+      }
+    };
+  }
+
+  @Override
+  protected FixedBitSet getFixedBitSet() {
+    return getFixedBitSetClone();
+  }
+
+  @Override
+  protected FixedBitSet getFixedBitSetClone() {
+    final FixedBitSet bits = new FixedBitSet(numBits);
+    addAllTo(bits);
+    return bits;
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    long bytes = BASE_RAM_BYTES_USED + RamUsageEstimator.shallowSizeOf(containers);
+    for (Container c : containers) {
+      if (c != null) bytes += c.ramBytesUsed();
+    }
+    return bytes;
+  }
+
+  @Override
+  public Collection<Accountable> getChildResources() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public String toString() {
+    return "RoaringDocSet{"
+        + "size="
+        + size
+        + ",ramUsed="
+        + RamUsageEstimator.humanReadableUnits(ramBytesUsed())
+        + '}';
+  }
+
+  /** The docs of one block, as offsets from the start of the block. */
+  private abstract static class Container implements Accountable {
+    abstract boolean contains(int low);
+
+    /** Returns the first offset at or after {@code low}, or -1 */
+    abstract int nextSetBit(int low);
+
+    /** Returns the last offset at or before {@code low}, or -1 */
+    abstract int prevSetBit(int low);
+
+    /** Sets the docs of this block, which starts at {@code base}, in the target. */
+    abstract void addAllTo(FixedBitSet target, int base);
+
+    /** Counts the docs of this block, which starts at {@code base}, that are set in bits. */
+    abstract int intersectionSize(FixedBitSet bits, int base);
+
+    /**
+     * Appends the docs of this block, which starts at {@code base}, that are set in bits to docs
+     * from {@code count} on, and returns the new count.
+     */
+    abstract int intersection(FixedBitSet bits, int base, int[] docs, int count);
+  }
+
+  private static final class ArrayContainer extends Container {
+    private static final long BASE_RAM_BYTES_USED =
+        RamUsageEstimator.shallowSizeOfInstance(ArrayContainer.class);
+
+    private final char[] values;
+
+    private ArrayContainer(char[] values) {
+      this.values = values;
+    }
+
+    static ArrayContainer build(long[] words, int from, int to, int cardinality) {
+      final char[] values = new char[cardinality];
+      int n = 0;
+      for (int i = from; i < to; i++) {
+        long word = words[i];
+        while (word != 0) {
+          values[n++] = (char) (((i - from) << 6) | Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+      return new ArrayContainer(values);
+    }
+
+    @Override
+    boolean contains(int low) {
+      return Arrays.binarySearch(values, (char) low) >= 0;
+    }
+
+    @Override
+    int nextSetBit(int low) {
+      int idx = Arrays.binarySearch(values, (char) low);
+      if (idx < 0) idx = -idx - 1;
+      return idx < values.length ? values[idx] : -1;
+    }
+
+    @Override
+    int prevSetBit(int low) {
+      int idx = Arrays.binarySearch(values, (char) low);
+      if (idx < 0) idx = -idx - 2;
+      return idx >= 0 ? values[idx] : -1;
+    }
+
+    @Override
+    void addAllTo(FixedBitSet target, int base) {
+      final int length = target.length();
+      for (char v : values) {
+        if (base + v >= length) break;
+        target.set(base + v);
+      }
+    }
+
+    @Override
+    int intersectionSize(FixedBitSet bits, int base) {
+      final int length = bits.length();
+      int count = 0;
+      for (char v : values) {
+        if (base + v >= length) break;
+        if (bits.get(base + v)) count++;
+      }
+      return count;
+    }
+
+    @Override
+    int intersection(FixedBitSet bits, int base, int[] docs, int count) {
+      final int length = bits.length();
+      for (char v : values) {
+        if (base + v >= length) break;
+        if (bits.get(base + v)) docs[count++] = base + v;
+      }
+      return count;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(values);
+    }
+  }
+
+  private static final class BitmapContainer extends Container {
+    private static final long BASE_RAM_BYTES_USED =
+        RamUsageEstimator.shallowSizeOfInstance(BitmapContainer.class);
+
+    private final long[] words;
+
+    private BitmapContainer(long[] words) {
+      this.words = words;
+    }
+
+    @Override
+    boolean contains(int low) {
+      return (words[low >>> 6] & (1L << low)) != 0;
+    }
+
+    @Override
+    int nextSetBit(int low) {
+      int i = low >>> 6;
+      long word = words[i] >>> low;
+      if (word != 0) {
+        return low + Long.numberOfTrailingZeros(word);
+      }
+      while (++i < words.length) {
+        word = words[i];
+        if (word != 0) {
+          return (i << 6) + Long.numberOfTrailingZeros(word);
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    int prevSetBit(int low) {
+      int i = low >>> 6;
+      long word = words[i] << (63 - (low & 0x3f)); // skip all the bits above low
+      if (word != 0) {
+        return low - Long.numberOfLeadingZeros(word);
+      }
+      while (--i >= 0) {
+        word = words[i];
+        if (word != 0) {
+          return (i << 6) + 63 - Long.numberOfLeadingZeros(word);
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    void addAllTo(FixedBitSet target, int base) {
+      final long[] targetWords = target.getBits();
+      final int offset = base >>> 6;
+      final int n = Math.min(words.length, targetWords.length - offset);
+      for (int i = 0; i < n; i++) {
+        targetWords[offset + i] |= words[i];
+      }
+    }
+
+    @Override
+    int intersectionSize(FixedBitSet bits, int base) {
+      final long[] otherWords = bits.getBits();
+      final int offset = base >>> 6;
+      final int n = Math.min(words.length, otherWords.length - offset);
+      int count = 0;
+      for (int i = 0; i < n; i++) {
+        count += Long.bitCount(words[i] & otherWords[offset + i]);
+      }
+      return count;
+    }
+
+    @Override
+    int intersection(FixedBitSet bits, int base, int[] docs, int count) {
+      final long[] otherWords = bits.getBits();
+      final int offset = base >>> 6;
+      final int n = Math.min(words.length, otherWords.length - offset);
+      for (int i = 0; i < n; i++) {
+        long word = words[i] & otherWords[offset + i];
+        while (word != 0) {
+          docs[count++] = base + ((i << 6) | Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+      return count;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(words);
+    }
+  }
+
+  private static final class RunContainer extends Container {
+    private static final long BASE_RAM_BYTES_USED =
+        RamUsageEstimator.shallowSizeOfInstance(RunContainer.class);
+
+    private final char[] starts; // sorted
+    private final char[] lengths; // length of each run minus one
+
+    private RunContainer(char[] starts, char[] lengths) {
+      this.starts = starts;
+      this.lengths = lengths;
+    }
+
+    static RunContainer build(long[] words, int from, int to, int runs) {
+      final char[] starts = new char[runs];
+      final char[] lengths = new char[runs];
+      int run = -1;
+      int prev = -2;
+      for (int i = from; i < to; i++) {
+        long word = words[i];
+        while (word != 0) {
+          final int low = ((i - from) << 6) | Long.numberOfTrailingZeros(word);
+          if (low == prev + 1) {
+            lengths[run]++;
+          } else {
+            starts[++run] = (char) low;
+          }
+          prev = low;
+          word &= word - 1;
+        }
+      }
+      assert run + 1 == runs;
+      return new RunContainer(starts, lengths);
+    }
+
+    /** Index of the last run starting at or before low, or -1 */
+    private int runIndex(int low) {
+      int idx = Arrays.binarySearch(starts, (char) low);
+      return idx >= 0 ? idx : -idx - 2;
+    }
+
+    @Override
+    boolean contains(int low) {
+      final int idx = runIndex(low);
+      return idx >= 0 && low <= starts[idx] + lengths[idx];
+    }
+
+    @Override
+    int nextSetBit(int low) {
+      final int idx = runIndex(low);
+      if (idx >= 0 && low <= starts[idx] + lengths[idx]) {
+        return low;
+      }
+      return idx + 1 < starts.length ? starts[idx + 1] : -1;
+    }
+
+    @Override
+    int prevSetBit(int low) {
+      final int idx = runIndex(low);
+      return idx >= 0 ? Math.min(low, starts[idx] + lengths[idx]) : -1;
+    }
+
+    @Override
+    void addAllTo(FixedBitSet target, int base) {
+      final int length = target.length();
+      for (int i = 0; i < starts.length; i++) {
+        final int start = base + starts[i];
+        if (start >= length) break;
+        target.set(start, Math.min(start + lengths[i] + 1, length));
+      }
+    }
+
+    @Override
+    int intersectionSize(FixedBitSet bits, int base) {
+      final int length = bits.length();
+      int count = 0;
+      for (int i = 0; i < starts.length; i++) {
+        final int start = base + starts[i];
+        if (start >= length) break;
+        final int end = Math.min(start + lengths[i] + 1, length);
+        for (int doc = bits.nextSetBit(start);
+            doc < end;
+            doc = doc + 1 < length ? bits.nextSetBit(doc + 1) : DocIdSetIterator.NO_MORE_DOCS) {
+          count++;
+        }
+      }
+      return count;
+    }
+
+    @Override
+    int intersection(FixedBitSet bits, int base, int[] docs, int count) {
+      final int length = bits.length();
+      for (int i = 0; i < starts.length; i++) {
+        final int start = base + starts[i];
+        if (start >= length) break;
+        final int end = Math.min(start + lengths[i] + 1, length);
+        for (int doc = bits.nextSetBit(start);
+            doc < end;
+            doc = doc + 1 < length ? bits.nextSetBit(doc + 1) : DocIdSetIterator.NO_MORE_DOCS) {
+          docs[count++] = doc;
+        }
+      }
+      return count;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      return BASE_RAM_BYTES_USED
+          + RamUsageEstimator.sizeOf(starts)
+          + RamUsageEstimator.sizeOf(lengths);
+    }
+  }
+}
@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.FilteredDocIdSetIterator;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.DocIdSetBuilder;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.solr.common.MapWriter;
+
+/**
+ * A per-core cache of filter results keyed by query and segment core. Unlike the searcher-level
+ * filterCache, entries are computed per {@link LeafReader} and ignore deletions, so they remain
+ * valid for as long as the segment itself exists. A DocSet for a new searcher is assembled from the
+ * cached leaves, applying the current live docs, and only segments that were not seen before need
+ * to be evaluated. This makes filterCache autowarming after a commit proportional to the size of
+ * the new segments rather than the size of the index.
+ *
+ * <p>Entries for a segment are dropped when the segment core is closed.
+ *
+ * @lucene.experimental
+ */
+public class SegmentFilterCache implements Accountable, Closeable {
+
+  private static final long BASE_RAM_BYTES_USED =
+      RamUsageEstimator.shallowSizeOfInstance(SegmentFilterCache.class);
+
+  private final Cache<LeafKey, DocIdSet> cache;
+  private final Set<IndexReader.CacheKey> trackedCores = ConcurrentHashMap.newKeySet();
+  private final long maxRamBytes;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder uncacheable = new LongAdder();
+
+  public SegmentFilterCache(long maxRamBytes) {
+    this.maxRamBytes = maxRamBytes;
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumWeight(maxRamBytes)
+            .weigher(
+                (LeafKey k, DocIdSet v) ->
+                    (int)
+                        Math.min(
+                            Integer.MAX_VALUE,
+                            RamUsageEstimator.sizeOfObject(
+                                    k.query, RamUsageEstimator.QUERY_DEFAULT_RAM_BYTES_USED)
+                                + v.ramBytesUsed()))
+            .build();
+  }
+
+  /**
+   * Whether the DocSet for this (positive, unwrapped) query may be assembled from per-segment
+   * entries. Queries backed by a top-level {@link DocSet} are tied to one specific reader, and
+   * {@link DocSetProducer}s already build their DocSet directly, so both take the regular path.
+   */
+  public static boolean supports(Query query) {
+    return !(query instanceof DocSetQuery)
+        && !(query instanceof DocSetProducer)
+        && !(query instanceof MatchAllDocsQuery);
+  }
+
+  /**
+   * Computes the DocSet matching a query by combining per-segment results, computing and caching
+   * those that are missing. Live docs of the searcher are applied during assembly.
+   */
+  public DocSet getDocSet(SolrIndexSearcher searcher, Query query) throws IOException {
+    final List<LeafReaderContext> leaves = searcher.getTopReaderContext().leaves();
+    final DocIdSetIterator[] perLeaf = new DocIdSetIterator[leaves.size()];
+    Weight weight = null;
+    long cost = 0;
+    for (LeafReaderContext ctx : leaves) {
+      final IndexReader.CacheHelper cacheHelper = ctx.reader().getCoreCacheHelper();
+      final LeafKey key = cacheHelper == null ? null : new LeafKey(query, cacheHelper.getKey());
+      DocIdSet leafSet = key == null ? null : cache.getIfPresent(key);
+      if (leafSet != null) {
+        hits.increment();
+      } else {
+        checkLimits();
+        if (weight == null) {
+          weight =
+              searcher.createWeight(searcher.rewrite(query), ScoreMode.COMPLETE_NO_SCORES, 1f);
+        }
+        leafSet = computeLeaf(weight, ctx);
+        if (key != null && weight.isCacheable(ctx)) {
+          misses.increment();
+          track(cacheHelper);
+          cache.put(key, leafSet);
+        } else {
+          uncacheable.increment();
+        }
+      }
+      final DocIdSetIterator it = leafSet.iterator();
+      if (it != null) {
+        perLeaf[ctx.ord] = it;
+        cost += it.cost();
+      }
+    }
+
+    final DocSetBuilder builder = new DocSetBuilder(searcher.maxDoc(), cost);
+    for (LeafReaderContext ctx : leaves) {
+      DocIdSetIterator it = perLeaf[ctx.ord];
+      if (it == null) continue;
+      final Bits liveDocs = ctx.reader().getLiveDocs();
+      if (liveDocs != null) {
+        it =
+            new FilteredDocIdSetIterator(it) {
+              @Override
+              protected boolean match(int doc) {
+                return liveDocs.get(doc);
+              }
+            };
+      }
+      builder.add(it, ctx.docBase);
+    }
+    // leaves are visited in docBase order, so no sorting or deduplication is needed
+    return DocSetUtil.getDocSet(builder.buildUniqueInOrder(null), searcher);
+  }
+
+  /**
+   * Leaves are evaluated with a {@link Weight} directly rather than through {@link
+   * SolrIndexSearcher#search}, so query limits are checked here, before each segment. Only whole
+   * segments are ever cached.
+   */
+  private static void checkLimits() {
+    final QueryLimits queryLimits = QueryLimits.getCurrentLimits();
+    if (queryLimits.isLimitsEnabled() && queryLimits.shouldExit()) {
+      throw new QueryLimitsExceededException(
+          "Limits exceeded! (segment filter): " + queryLimits.limitStatusMessage());
+    }
+  }
+
+  private static DocIdSet computeLeaf(Weight weight, LeafReaderContext ctx) throws IOException {
+    final Scorer scorer = weight.scorer(ctx);
+    if (scorer == null) {
+      return DocIdSet.EMPTY;
+    }
+    final DocIdSetBuilder builder = new DocIdSetBuilder(ctx.reader().maxDoc());
+    builder.add(scorer.iterator());
+    return builder.build();
+  }
+
+  private void track(IndexReader.CacheHelper cacheHelper) {
+    if (trackedCores.add(cacheHelper.getKey())) {
+      cacheHelper.addClosedListener(this::onCoreClosed);
+    }
+  }
+
+  private void onCoreClosed(IndexReader.CacheKey coreKey) {
+    trackedCores.remove(coreKey);
+    cache.asMap().keySet().removeIf(k -> k.coreKey == coreKey);
+  }
+
+  public long getMaxRamBytes() {
+    return maxRamBytes;
+  }
+
+  /** Writes statistics, suitable for a {@link org.apache.solr.metrics.MetricsMap}. */
+  public void writeStats(MapWriter.EntryWriter map) throws IOException {
+    map.put("hits", hits.sum());
+    map.put("misses", misses.sum());
+    map.put("uncacheable", uncacheable.sum());
+    map.put("size", cache.estimatedSize());
+    map.put("segments", trackedCores.size());
+    map.put("ramBytesUsed", ramBytesUsed());
+    map.put("maxRamBytes", maxRamBytes);
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    return BASE_RAM_BYTES_USED
+        + cache.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L);
+  }
+
+  @Override
+  public void close() {
+    cache.invalidateAll();
+    trackedCores.clear();
+  }
+
+  private static final class LeafKey {
+    final Query query;
+    final IndexReader.CacheKey coreKey;
+    final int hash;
+
+    LeafKey(Query query, IndexReader.CacheKey coreKey) {
+      this.query = query;
+      this.coreKey = coreKey;
+      this.hash = 31 * query.hashCode() + System.identityHashCode(coreKey);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) return true;
+      if (!(obj instanceof LeafKey)) return false;
+      LeafKey other = (LeafKey) obj;
+      return coreKey == other.coreKey && Objects.equals(query, other.query);
+    }
+  }
+}
@@ -28,7 +28,10 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Predicate;
@@ -64,8 +67,11 @@ import org.apache.lucene.util.NumericUtils;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentBase;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.ByteArrayUtf8CharSequence;
 import org.apache.solr.core.SolrConfig;
+import org.apache.solr.request.SolrRequestInfo;
 import org.apache.solr.response.DocsStreamer;
+import org.apache.solr.response.JavaBinResponseWriter;
 import org.apache.solr.response.ResultContext;
 import org.apache.solr.schema.AbstractEnumField;
 import org.apache.solr.schema.BoolField;
@@ -91,6 +97,12 @@ public class SolrDocumentFetcher {
 
   private final SolrCache<Integer, Document> documentCache;
 
+  /**
+   * Max docs kept per request when there is no documentCache, so a doc read by several components
+   * of a request is decoded once; 0 disables it.
+   */
+  private final int requestDocumentCacheSize;
+
   private final Set<String> allStored;
 
   private final Set<String> dvsCanSubstituteStored;
@@ -126,6 +138,7 @@ public class SolrDocumentFetcher {
     this.nLeaves = template.nLeaves;
     this.enableLazyFieldLoading = template.enableLazyFieldLoading;
     this.documentCache = template.documentCache;
+    this.requestDocumentCacheSize = template.requestDocumentCacheSize;
     this.nonStoredDVsUsedAsStored = template.nonStoredDVsUsedAsStored;
     this.allNonStoredDVs = template.allNonStoredDVs;
     this.nonStoredDVsWithoutCopyTargets = template.nonStoredDVsWithoutCopyTargets;
@@ -161,6 +174,8 @@ public class SolrDocumentFetcher {
 
     // lazy loading makes no sense if we don't have a `documentCache`
     this.enableLazyFieldLoading = solrConfig.enableLazyFieldLoading && documentCache != null;
+    this.requestDocumentCacheSize =
+        documentCache == null && cachingEnabled ? solrConfig.requestDocumentCacheSize : 0;
 
     final Set<String> nonStoredDVsUsedAsStored = new HashSet<>();
     final Set<String> allNonStoredDVs = new HashSet<>();
@@ -301,8 +316,69 @@ public class SolrDocumentFetcher {
       } else {
         return d;
       }
-    } else {
-      return docNC(i, fields);
+    }
+    final RequestDocuments requestDocuments = getRequestDocuments();
+    if (requestDocuments != null) {
+      return requestDocuments.doc(i, fields);
+    }
+    return docNC(i, fields);
+  }
+
+  /**
+   * Returns the documents loaded during the current request, or null if they are not kept.
+   *
+   * @see SolrConfig#requestDocumentCacheSize
+   */
+  private RequestDocuments getRequestDocuments() {
+    if (requestDocumentCacheSize <= 0) {
+      return null;
+    }
+    final SolrRequestInfo requestInfo = SolrRequestInfo.getRequestInfo();
+    if (requestInfo == null || requestInfo.getReq() == null) {
+      return null;
+    }
+    final Map<Object, Object> context = requestInfo.getReq().getContext();
+    synchronized (context) {
+      @SuppressWarnings("unchecked")
+      Map<SolrIndexSearcher, RequestDocuments> bySearcher =
+          (Map<SolrIndexSearcher, RequestDocuments>)
+              context.computeIfAbsent(RequestDocuments.class, k -> new IdentityHashMap<>());
+      return bySearcher.computeIfAbsent(searcher, k -> new RequestDocuments());
+    }
+  }
+
+  /**
+   * Documents loaded during one request, with the fields that were loaded. A later load of a doc
+   * asking for fields that were not loaded yet loads the union of the fields, so a doc is decoded
+   * at most once per distinct field request.
+   */
+  private final class RequestDocuments {
+    /** A loaded doc; {@code fields} null means all fields were loaded */
+    private record Loaded(Document doc, Set<String> fields) {}
+
+    private final Map<Integer, Loaded> docs =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Integer, Loaded> eldest) {
+            return size() > requestDocumentCacheSize;
+          }
+        };
+
+    synchronized Document doc(int docId, Set<String> fields) throws IOException {
+      Loaded loaded = docs.get(docId);
+      if (loaded != null
+          && (loaded.fields() == null
+              || (fields != null && loaded.fields().containsAll(fields)))) {
+        return loaded.doc();
+      }
+      Set<String> toLoad = fields;
+      if (loaded != null && fields != null) {
+        toLoad = new HashSet<>(loaded.fields());
+        toLoad.addAll(fields);
+      }
+      Document d = docNC(docId, toLoad);
+      docs.put(docId, new Loaded(d, toLoad));
+      return d;
     }
   }
 
@@ -404,7 +480,7 @@ public class SolrDocumentFetcher {
 
   /** Visit a document's fields using a {@link StoredFieldVisitor}. */
   public void doc(int docId, StoredFieldVisitor visitor) throws IOException {
-    if (documentCache != null) {
+    if (documentCache != null || getRequestDocuments() != null) {
       // get cached document or retrieve it including all fields (and cache it)
       Document cached = doc(docId);
       visitFromCached(cached, visitor);
@@ -604,10 +680,16 @@ public class SolrDocumentFetcher {
     final int subIndex = ReaderUtil.subIndex(docid, leafContexts);
     final int localId = docid - leafContexts.get(subIndex).docBase;
     final LeafReader leafReader = leafContexts.get(subIndex).reader();
+    // only documents that mask their values may hold the raw UTF-8 bytes
+    final Predicate<String> readAsBytes =
+        doc instanceof JavaBinResponseWriter.MaskCharSeqSolrDocument
+            ? ResultContext.READASBYTES.get()
+            : null;
     for (String fieldName : fields) {
       DocValuesIteratorCache.FieldDocValuesSupplier e = reuseDvIters.getSupplier(fieldName);
       if (e != null) {
-        Object fieldValue = decodeDVField(localId, leafReader, subIndex, e);
+        boolean asUtf8 = readAsBytes != null && readAsBytes.test(fieldName);
+        Object fieldValue = decodeDVField(localId, leafReader, subIndex, e, asUtf8);
         if (fieldValue != null) {
           doc.setField(fieldName, fieldValue);
         }
@@ -618,13 +700,16 @@ public class SolrDocumentFetcher {
   /**
    * Decode value from DV field for a document
    *
+   * @param asUtf8 if true, terms of string fields are returned as their UTF-8 bytes instead of
+   *     Strings, sparing the decoding and the re-encoding by the response writer
    * @return null if DV field is not exist or can not decodable
    */
   private Object decodeDVField(
       int localId,
       LeafReader leafReader,
       int readerOrd,
-      DocValuesIteratorCache.FieldDocValuesSupplier e)
+      DocValuesIteratorCache.FieldDocValuesSupplier e,
+      boolean asUtf8)
       throws IOException {
 
     final DocValuesType dvType = e.type;
@@ -649,6 +734,8 @@ public class SolrDocumentFetcher {
           // Special handling for Boolean fields since they're stored as 'T' and 'F'.
           if (e.schemaField.getType() instanceof BoolField) {
             return e.schemaField.getType().toObject(e.schemaField, bRef);
+          } else if (asUtf8) {
+            return toUtf8CharSequence(bRef);
           } else {
             return bRef.utf8ToString();
           }
@@ -687,7 +774,10 @@ public class SolrDocumentFetcher {
               ord != SortedSetDocValues.NO_MORE_ORDS;
               ord = values.nextOrd()) {
             BytesRef value = values.lookupOrd(ord);
-            outValues.add(e.schemaField.getType().toObject(e.schemaField, value));
+            outValues.add(
+                asUtf8
+                    ? toUtf8CharSequence(value)
+                    : e.schemaField.getType().toObject(e.schemaField, value));
           }
           assert outValues.size() > 0;
           return outValues;
@@ -698,6 +788,14 @@ public class SolrDocumentFetcher {
     }
   }
 
+  /** Copies the bytes since docValues reuse the BytesRef they return. */
+  private static ByteArrayUtf8CharSequence toUtf8CharSequence(BytesRef bytesRef) {
+    return new ByteArrayUtf8CharSequence(
+        Arrays.copyOfRange(bytesRef.bytes, bytesRef.offset, bytesRef.offset + bytesRef.length),
+        0,
+        bytesRef.length);
+  }
+
   private Object decodeNumberFromDV(SchemaField schemaField, long value, boolean sortableNumeric) {
     // note: This special-case is unfortunate; if we have to add any more than perhaps the fieldType
     // should have this method so that specific field types can customize it.
@@ -915,7 +1013,10 @@ public class SolrDocumentFetcher {
           }
         } else {
           // no need to get stored fields of the document, see SOLR-5968
-          sdoc = new SolrDocument();
+          sdoc =
+              ResultContext.READASBYTES.get() == null
+                  ? new SolrDocument()
+                  : new JavaBinResponseWriter.MaskCharSeqSolrDocument();
           solrReturnFields.setFieldSources(SolrReturnFields.FIELD_SOURCES.ALL_FROM_DV);
         }
 
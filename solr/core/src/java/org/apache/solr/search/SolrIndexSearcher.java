@@ -105,6 +105,7 @@ import org.apache.solr.core.NodeConfig;
 import org.apache.solr.core.SolrConfig;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.core.SolrInfoBean;
+import org.apache.solr.index.OrdinalMapCache;
 import org.apache.solr.index.SlowCompositeReaderWrapper;
 import org.apache.solr.metrics.MetricsMap;
 import org.apache.solr.metrics.SolrMetricManager;
@@ -163,6 +164,8 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
   private final int queryResultWindowSize;
   private final int queryResultMaxDocsCached;
   private final boolean useFilterForSortedQuery;
+  private final boolean filterCacheOffHeap;
+  private final boolean filterCacheCompress;
 
   private final boolean cachingEnabled;
   private final SolrCache<Query, DocSet> filterCache;
@@ -385,7 +388,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     this.directoryFactory = directoryFactory;
     this.reader = (DirectoryReader) super.readerContext.reader();
     this.rawReader = r;
-    this.leafReader = SlowCompositeReaderWrapper.wrap(this.reader);
+    this.leafReader = SlowCompositeReaderWrapper.wrap(this.reader, core.getOrdinalMapCache());
     this.core = core;
     this.statsCache = core.createStatsCache();
     this.schema = schema;
@@ -418,6 +421,8 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     this.queryResultWindowSize = solrConfig.queryResultWindowSize;
     this.queryResultMaxDocsCached = solrConfig.queryResultMaxDocsCached;
     this.useFilterForSortedQuery = solrConfig.useFilterForSortedQuery;
+    this.filterCacheOffHeap = solrConfig.filterCacheOffHeap;
+    this.filterCacheCompress = solrConfig.filterCacheCompress;
 
     this.docFetcher = new SolrDocumentFetcher(this, solrConfig, enableCache);
 
@@ -941,7 +946,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     // or OS disk cache.
     if (optionalAnswer != null) {
       if (filterCache != null) {
-        filterCache.put(query, optionalAnswer);
+        filterCache.put(query, toFilterCacheEntry(optionalAnswer));
       }
       return;
     }
@@ -960,6 +965,9 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     if (answer instanceof BitDocSet) {
       return (BitDocSet) answer;
     }
+    if (answer instanceof OffHeapBitDocSet || answer instanceof RoaringDocSet) {
+      return new BitDocSet(answer.getFixedBitSetClone(), answer.size());
+    }
     FixedBitSet bs = new FixedBitSet(maxDoc());
     DocIterator iter = answer.iterator();
     while (iter.hasNext()) {
@@ -969,10 +977,17 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     return new BitDocSet(bs, answer.size());
   }
 
+  /**
+   * Returns the docs of the query as a {@link BitDocSet}. A filterCache entry kept off-heap or
+   * compressed is copied for the call and stays as it is in the cache; callers that only navigate
+   * the docs, such as block join facet domains, use {@link #getDocSet(Query)} for those instead.
+   */
   public BitDocSet getDocSetBits(Query q) throws IOException {
     DocSet answer = getDocSet(q);
     BitDocSet answerBits = makeBitDocSet(answer);
-    if (answerBits != answer && filterCache != null) {
+    if (answerBits != answer
+        && filterCache != null
+        && !(answer instanceof OffHeapBitDocSet || answer instanceof RoaringDocSet)) {
       filterCache.put(q, answerBits);
     }
     return answerBits;
@@ -1033,17 +1048,50 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
 
       // Not found in the cache so compute and put in the cache
       if (answer == null) {
-        answer = getDocSetNC(query, null);
+        answer = getFilterDocSetNC(query);
         filterCache.put(query, answer);
       }
     } else {
-      answer = filterCache.computeIfAbsent(query, q -> getDocSetNC(q, null));
+      answer = filterCache.computeIfAbsent(query, this::getFilterDocSetNC);
     }
 
     assert !(answer instanceof MutableBitDocSet) : "should not be mutable";
     return answer;
   }
 
+  /**
+   * Computes the DocSet for a filterCache miss. If the core has a {@link SegmentFilterCache}, the
+   * answer is assembled from per-segment entries so that segments unchanged since a previous
+   * searcher (e.g. during autowarming) are not evaluated again.
+   */
+  private DocSet getFilterDocSetNC(Query query) throws IOException {
+    final SegmentFilterCache segmentFilterCache = core.getSegmentFilterCache();
+    if (segmentFilterCache != null && SegmentFilterCache.supports(query)) {
+      return toFilterCacheEntry(segmentFilterCache.getDocSet(this, query));
+    }
+    return toFilterCacheEntry(getDocSetNC(query, null));
+  }
+
+  /**
+   * Converts a DocSet about to be put in the filterCache to the form it is stored in. With {@link
+   * SolrConfig#filterCacheCompress}, bit sets are compressed when that saves enough memory, which
+   * is typically the case between about 1% and 20% density. With {@link
+   * SolrConfig#filterCacheOffHeap}, remaining bit sets are moved to direct memory. Small sorted int
+   * sets stay as they are.
+   */
+  private DocSet toFilterCacheEntry(DocSet answer) {
+    if (filterCacheCompress && answer instanceof BitDocSet) {
+      answer = RoaringDocSet.compress((BitDocSet) answer, MAX_COMPRESSED_RATIO);
+    }
+    if (filterCacheOffHeap && answer instanceof BitDocSet) {
+      return OffHeapBitDocSet.copyOf((BitDocSet) answer);
+    }
+    return answer;
+  }
+
+  /** A compressed filterCache entry must take less than this ratio of the bit set memory. */
+  private static final float MAX_COMPRESSED_RATIO = 0.75f;
+
   private static final MatchAllDocsQuery MATCH_ALL_DOCS_QUERY = new MatchAllDocsQuery();
 
   /** Used as a synchronization point to handle the lazy-init of {@link #liveDocs}. */
@@ -1358,7 +1406,8 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       TermQuery key = new TermQuery(new Term(deState.fieldName, deState.termsEnum.term()));
       return filterCache.computeIfAbsent(
           key,
-          (IOFunction<? super Query, ? extends DocSet>) k -> getResult(deState, largestPossible));
+          (IOFunction<? super Query, ? extends DocSet>)
+              k -> toFilterCacheEntry(getResult(deState, largestPossible)));
     }
 
     return getResult(deState, largestPossible);
@@ -1753,7 +1802,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
         DocSet qDocSet = getDocListAndSetNC(qr, cmd);
         // cache the docSet matching the query w/o filtering
         if (qDocSet != null && filterCache != null && !qr.isPartialResults())
-          filterCache.put(cmd.getQuery(), qDocSet);
+          filterCache.put(cmd.getQuery(), toFilterCacheEntry(qDocSet));
       } else {
         getDocListNC(qr, cmd);
       }
@@ -2501,6 +2550,15 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
         log.debug("autowarming result for [{}]\n\t{}", this, cacheList[i]);
       }
     }
+
+    final OrdinalMapCache ordinalMapCache = core.getOrdinalMapCache();
+    if (ordinalMapCache != null) {
+      try {
+        ordinalMapCache.warm(leafReader);
+      } catch (IOException e) {
+        log.warn("Error warming ordinal maps of {}", this, e);
+      }
+    }
     warmupTime =
         TimeUnit.MILLISECONDS.convert(System.nanoTime() - warmingStartTime, TimeUnit.NANOSECONDS);
   }
@@ -2611,6 +2669,24 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
             });
     parentContext.gauge(
         liveDocsCacheMetrics, true, "liveDocsCache", Category.SEARCHER.toString(), scope);
+    final SegmentFilterCache segmentFilterCache = core.getSegmentFilterCache();
+    if (segmentFilterCache != null) {
+      parentContext.gauge(
+          new MetricsMap(segmentFilterCache::writeStats),
+          true,
+          "segmentFilterCache",
+          Category.SEARCHER.toString(),
+          scope);
+    }
+    final OrdinalMapCache ordinalMapCache = core.getOrdinalMapCache();
+    if (ordinalMapCache != null) {
+      parentContext.gauge(
+          new MetricsMap(ordinalMapCache::writeStats),
+          true,
+          "ordinalMapCache",
+          Category.SEARCHER.toString(),
+          scope);
+    }
     // reader stats
     parentContext.gauge(
         rgauge(parentContext.nullNumber(), () -> reader.numDocs()),
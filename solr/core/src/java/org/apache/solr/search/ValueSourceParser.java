@@ -92,6 +92,7 @@ import org.apache.solr.search.facet.HLLAgg;
 import org.apache.solr.search.facet.MinMaxAgg;
 import org.apache.solr.search.facet.MissingAgg;
 import org.apache.solr.search.facet.PercentileAgg;
+import org.apache.solr.search.facet.PercentileSketchAgg;
 import org.apache.solr.search.facet.RelatednessAgg;
 import org.apache.solr.search.facet.StddevAgg;
 import org.apache.solr.search.facet.SumAgg;
@@ -1340,6 +1341,33 @@ public abstract class ValueSourceParser implements NamedListInitializedPlugin {
           }
         });
 
+    addParser(
+        "agg_" + PercentileSketchAgg.NAME,
+        new ValueSourceParser() {
+          @Override
+          public ValueSource parse(FunctionQParser fp) throws SyntaxError {
+            List<Double> percentiles = new ArrayList<>();
+            ValueSource vs =
+                fp.parseValueSource(
+                    FunctionQParser.FLAG_DEFAULT | FunctionQParser.FLAG_USE_FIELDNAME_SOURCE);
+            while (fp.hasMoreArguments()) {
+              double val = fp.parseDouble();
+              if (val < 0 || val > 100) {
+                throw new SyntaxError(
+                    "requested percentile must be between 0 and 100.  got " + val);
+              }
+              percentiles.add(val);
+            }
+
+            if (percentiles.isEmpty()) {
+              throw new SyntaxError(
+                  "expected percentileSketch(valsource,percent1[,percent2]*)  EXAMPLE:percentileSketch(myfield,99)");
+            }
+
+            return new PercentileSketchAgg(vs, percentiles);
+          }
+        });
+
     addParser(
         "agg_" + RelatednessAgg.NAME,
         new ValueSourceParser() {
@@ -23,7 +23,9 @@ import org.apache.solr.search.BitDocSet;
 import org.apache.solr.search.DocIterator;
 import org.apache.solr.search.DocSet;
 import org.apache.solr.search.DocSetCollector;
+import org.apache.solr.search.OffHeapBitDocSet;
 import org.apache.solr.search.QueryContext;
+import org.apache.solr.search.RoaringDocSet;
 
 /**
  * @lucene.experimental
@@ -36,9 +38,9 @@ public class BlockJoin {
    * documents.
    */
   public static DocSet toChildren(
-      DocSet parentInput, BitDocSet parentList, DocSet acceptDocs, QueryContext qcontext)
+      DocSet parentInput, DocSet parentList, DocSet acceptDocs, QueryContext qcontext)
       throws IOException {
-    FixedBitSet parentBits = parentList.getBits();
+    ParentBits parentBits = ParentBits.of(parentList, qcontext.searcher().maxDoc());
     DocSetCollector collector = new DocSetCollector(qcontext.searcher().maxDoc());
     DocIterator iter = parentInput.iterator();
     while (iter.hasNext()) {
@@ -60,9 +62,9 @@ public class BlockJoin {
   /**
    * childInput may also contain parents (i.e. a parent or below will all roll up to that parent)
    */
-  public static DocSet toParents(DocSet childInput, BitDocSet parentList, QueryContext qcontext)
+  public static DocSet toParents(DocSet childInput, DocSet parentList, QueryContext qcontext)
       throws IOException {
-    FixedBitSet parentBits = parentList.getBits();
+    ParentBits parentBits = ParentBits.of(parentList, qcontext.searcher().maxDoc());
     DocSetCollector collector = new DocSetCollector(qcontext.searcher().maxDoc());
     DocIterator iter = childInput.iterator();
     int currentParent = -1;
@@ -80,4 +82,60 @@ public class BlockJoin {
     }
     return collector.getDocSet();
   }
+
+  /** Navigates the parent docs, reading the bits in place when the set has them. */
+  private interface ParentBits {
+    /** Returns the last parent at or before doc, or -1 */
+    int prevSetBit(int doc);
+
+    /** Returns the first parent at or after doc, or NO_MORE_DOCS */
+    int nextSetBit(int doc);
+
+    static ParentBits of(DocSet parentList, int maxDoc) {
+      if (parentList instanceof OffHeapBitDocSet offHeap) {
+        return new ParentBits() {
+          @Override
+          public int prevSetBit(int doc) {
+            return offHeap.prevSetBit(doc);
+          }
+
+          @Override
+          public int nextSetBit(int doc) {
+            return offHeap.nextSetBit(doc);
+          }
+        };
+      }
+      if (parentList instanceof RoaringDocSet roaring) {
+        return new ParentBits() {
+          @Override
+          public int prevSetBit(int doc) {
+            return roaring.prevSetBit(doc);
+          }
+
+          @Override
+          public int nextSetBit(int doc) {
+            return roaring.nextSetBit(doc);
+          }
+        };
+      }
+      final FixedBitSet bits;
+      if (parentList instanceof BitDocSet) {
+        bits = ((BitDocSet) parentList).getBits();
+      } else {
+        bits = new FixedBitSet(maxDoc);
+        parentList.addAllTo(bits);
+      }
+      return new ParentBits() {
+        @Override
+        public int prevSetBit(int doc) {
+          return bits.prevSetBit(doc);
+        }
+
+        @Override
+        public int nextSetBit(int doc) {
+          return doc < bits.length() ? bits.nextSetBit(doc) : DocIdSetIterator.NO_MORE_DOCS;
+        }
+      };
+    }
+  }
 }
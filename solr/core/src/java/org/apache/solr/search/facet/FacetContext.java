@@ -42,6 +42,7 @@ public class FacetContext {
   boolean cache = true;
   int flags;
   FacetDebugInfo debugInfo;
+  MultiFieldCounts multiFieldCounts; // counts shared with sibling facets, may be null
 
   public void setDebugInfo(FacetDebugInfo debugInfo) {
     this.debugInfo = debugInfo;
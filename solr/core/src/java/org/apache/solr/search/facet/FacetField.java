@@ -35,6 +35,9 @@ public class FacetField extends FacetRequestSorted {
   FacetMethod method;
   int cacheDf; // 0 means "default", -1 means "never cache"
 
+  // approximate the top terms by count with a sketch, counting only the candidates exactly
+  boolean approximate;
+
   // experimental - force perSeg collection when using dv method, currently for testing purposes
   // only.
   Boolean perSeg;
@@ -87,7 +90,7 @@ public class FacetField extends FacetRequestSorted {
     if (fcontext.facetInfo != null) {
       // refinement... we will end up either skipping the entire facet, or doing calculating only
       // specific facet buckets
-      if (multiToken && !sf.hasDocValues() && method != FacetMethod.DV && sf.isUninvertible()) {
+      if (multiToken && !sf.hasDocValues() && useUIF(fcontext) && sf.isUninvertible()) {
         // Match the access method from the first phase.
         // It won't always matter, but does currently for an all-values bucket
         return new FacetFieldProcessorByArrayUIF(fcontext, this, sf);
@@ -111,6 +114,10 @@ public class FacetField extends FacetRequestSorted {
       }
     }
 
+    if (approximate && canApproximate(sf)) {
+      return new FacetFieldProcessorBySketchDV(fcontext, this, sf);
+    }
+
     // TODO auto-pick ENUM/STREAM SOLR-9351 when index asc and DocSet cardinality is *not* much
     // smaller than term cardinality
     if (method == FacetMethod.ENUM) { // at the moment these two are the same
@@ -159,8 +166,8 @@ public class FacetField extends FacetRequestSorted {
       return new FacetFieldProcessorByHashDV(fcontext, this, sf);
     }
 
-    if (sf.hasDocValues() || method == FacetMethod.DV || !sf.isUninvertible()) {
-      // single and multi-valued string docValues
+    if (sf.hasDocValues() || !useUIF(fcontext) || !sf.isUninvertible()) {
+      // single and multi-valued string docValues, or per-segment uninverted values
       return new FacetFieldProcessorByArrayDV(fcontext, this, sf);
     }
 
@@ -168,6 +175,37 @@ public class FacetField extends FacetRequestSorted {
     return new FacetFieldProcessorByArrayUIF(fcontext, this, sf);
   }
 
+  /**
+   * Whether the top terms can be approximated with {@link FacetFieldProcessorBySketchDV}: only for
+   * a limited number of terms of a string docValues field sorted by count, without the options
+   * that need every term.
+   */
+  private boolean canApproximate(SchemaField sf) {
+    return sf.hasDocValues()
+        && sf.getType().getNumberType() == null
+        && limit > 0
+        && mincount > 0
+        && prefix == null
+        && !allBuckets
+        && !numBuckets
+        && prelim_sort == null
+        && FacetSort.COUNT_DESC.equals(sort);
+  }
+
+  /**
+   * Whether a multi-valued field without docValues is counted with a top-level {@link
+   * UnInvertedField} rather than with the values uninverted per segment.
+   *
+   * @see org.apache.solr.core.SolrConfig#perSegmentUninvertedFacets
+   */
+  private boolean useUIF(FacetContext fcontext) {
+    if (method == FacetMethod.UIF) {
+      return true;
+    }
+    return method != FacetMethod.DV
+        && !fcontext.searcher.getCore().getSolrConfig().perSegmentUninvertedFacets;
+  }
+
   private static DocValuesType dvType(FacetContext fcontext, String field) {
     var fieldInfo = fcontext.searcher.getFieldInfos().fieldInfo(field);
     return fieldInfo == null ? null : fieldInfo.getDocValuesType();
@@ -183,6 +221,9 @@ public class FacetField extends FacetRequestSorted {
     Map<String, Object> descr = new HashMap<>();
     descr.put("field", field);
     descr.put("limit", limit);
+    if (approximate) {
+      descr.put("approximate", true);
+    }
     return descr;
   }
 }
@@ -29,6 +29,7 @@ public class FacetFieldMerger extends FacetRequestSortedMerger<FacetField> {
   FacetBucket missingBucket;
   FacetBucket allBuckets;
   FacetMerger numBuckets;
+  Long maxMissedCount; // summed over the shards of an approximate facet
   int[] numReturnedPerShard; // TODO: this is currently unused?
 
   // LinkedHashMap<Object,FacetBucket> buckets = new LinkedHashMap<>();
@@ -86,6 +87,11 @@ public class FacetFieldMerger extends FacetRequestSortedMerger<FacetField> {
         numBuckets.merge(nb, mcontext);
       }
     }
+
+    Object mmc = facetResult.get("maxMissedCount");
+    if (mmc != null) {
+      maxMissedCount = (maxMissedCount == null ? 0 : maxMissedCount) + ((Number) mmc).longValue();
+    }
   }
 
   @Override
@@ -142,6 +148,9 @@ public class FacetFieldMerger extends FacetRequestSortedMerger<FacetField> {
     if (allBuckets != null) {
       result.add("allBuckets", allBuckets.getMergedBucket());
     }
+    if (maxMissedCount != null) {
+      result.add("maxMissedCount", maxMissedCount);
+    }
 
     return result;
   }
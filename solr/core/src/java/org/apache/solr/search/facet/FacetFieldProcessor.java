@@ -29,10 +29,12 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.function.BiPredicate;
 import java.util.function.Function;
 import java.util.function.IntFunction;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.PriorityQueue;
@@ -44,6 +46,7 @@ import org.apache.solr.search.DocSet;
 import org.apache.solr.search.facet.SlotAcc.SlotContext;
 import org.apache.solr.search.facet.SlotAcc.SweepableSlotAcc;
 import org.apache.solr.search.facet.SlotAcc.SweepingCountSlotAcc;
+import org.apache.solr.util.IOFunction;
 
 /**
  * Facet processing based on field values. (not range nor by query)
@@ -792,6 +795,30 @@ abstract class FacetFieldProcessor extends FacetProcessor<FacetField> {
     }
   }
 
+  /** Debug info key of the number of slices counted in parallel. */
+  static final String PARALLEL_SLICES_DEBUG_KEY = "parallelSlices";
+
+  /**
+   * Runs the task once per slice of the searcher, in parallel on its collector executor, and
+   * returns the results in slice order. Returns null, without running anything, if the searcher
+   * has a single slice (i.e. no executor is configured), so that callers collect serially instead.
+   * The task must only use state it owns, not the accumulators of this processor.
+   */
+  <T> List<T> collectSlicesInParallel(IOFunction<LeafReaderContext[], T> task)
+      throws IOException {
+    final IndexSearcher.LeafSlice[] slices = fcontext.searcher.getSlices();
+    if (slices.length <= 1) {
+      return null;
+    }
+    final FacetDebugInfo fdebug = fcontext.getDebugInfo();
+    if (fdebug != null) fdebug.putInfoItem(PARALLEL_SLICES_DEBUG_KEY, slices.length);
+    final List<Callable<T>> tasks = new ArrayList<>(slices.length);
+    for (IndexSearcher.LeafSlice slice : slices) {
+      tasks.add(() -> task.apply(slice.leaves));
+    }
+    return fcontext.searcher.getTaskExecutor().invokeAll(tasks);
+  }
+
   static class MultiAcc extends SlotAcc implements SweepableSlotAcc<SlotAcc> {
     final SlotAcc[] subAccs;
 
@@ -115,9 +115,8 @@ class FacetFieldProcessorByArrayDV extends FacetFieldProcessorByArray {
     // 658k docs.  At that point, top 10 buckets had 6-7 matches each. this was for heap docvalues
     // produced by UninvertingReader Since these values were randomly distributed, lets round our
     // domain multiplier up to account for less random real world data.
-    long domainMultiplier = multiValuedField ? 4L : 2L;
-    // +3 to increase test coverage with small tests
-    boolean manyHitsPerBucket = domainSize * domainMultiplier > (si.getValueCount() + 3);
+    boolean manyHitsPerBucket =
+        manyHitsPerBucket(domainSize, multiValuedField, si.getValueCount());
 
     // If we're only calculating counts, we're not prefixing, and we expect to collect many
     // documents per unique value, then collect per-segment before mapping to global ords at the
@@ -130,6 +129,28 @@ class FacetFieldProcessorByArrayDV extends FacetFieldProcessorByArray {
     if (freq.perSeg != null)
       accumSeg = canDoPerSeg && freq.perSeg; // internal - override perSeg heuristic
 
+    if (accumSeg && others.isEmpty() && fcontext.multiFieldCounts != null) {
+      // counted along with the sibling facets, in a single pass over the domain
+      final int[] counts = fcontext.multiFieldCounts.getCounts(sf, fcontext.base);
+      if (counts != null && counts.length == nTerms) {
+        final FacetDebugInfo fdebug = fcontext.getDebugInfo();
+        if (fdebug != null) fdebug.putInfoItem(MultiFieldCounts.SINGLE_PASS_DEBUG_KEY, true);
+        for (int ord = 0; ord < counts.length; ord++) {
+          if (counts[ord] != 0) {
+            base.countAcc.incrementCount(ord, counts[ord]);
+          }
+        }
+        return;
+      }
+    }
+
+    if (accumSeg && others.isEmpty()) {
+      // only the base counts are needed: count slices in parallel if the searcher can
+      if (collectSlicesInParallel(this::countSlice) != null) {
+        return;
+      }
+    }
+
     final int maxSize = others.size() + 1; // others + base
     final List<LeafReaderContext> leaves = fcontext.searcher.getIndexReader().leaves();
     final DocIdSetIterator[] subIterators = new DocIdSetIterator[maxSize];
@@ -205,6 +226,13 @@ class FacetFieldProcessorByArrayDV extends FacetFieldProcessorByArray {
     Arrays.fill(reuse, null); // better GC
   }
 
+  /** Whether counting per segment and mapping to global ords at the end is expected to pay off. */
+  static boolean manyHitsPerBucket(long domainSize, boolean multiValuedField, long valueCount) {
+    long domainMultiplier = multiValuedField ? 4L : 2L;
+    // +3 to increase test coverage with small tests
+    return domainSize * domainMultiplier > (valueCount + 3);
+  }
+
   @Override
   protected BytesRef lookupOrd(int ord) throws IOException {
     return si.lookupOrd(ord);
@@ -249,6 +277,68 @@ class FacetFieldProcessorByArrayDV extends FacetFieldProcessorByArray {
     segCounter.register(disi.countAccs, toGlobal, segMax - 1);
   }
 
+  /**
+   * Counts the base docs of the given leaves into segment-local counts, so that slices can be
+   * counted concurrently, then adds them to the base counts by global ord under a lock. Only valid
+   * for a count-only, full range facet.
+   */
+  private Void countSlice(LeafReaderContext[] leaves) throws IOException {
+    int[] segCounts = new int[0];
+    for (LeafReaderContext subCtx : leaves) {
+      final DocIdSetIterator disi = fcontext.base.iterator(subCtx);
+      if (disi == null) continue;
+      SortedDocValues singleDv = null;
+      SortedSetDocValues multiDv = null;
+      int segMax;
+      if (multiValuedField) {
+        multiDv = subCtx.reader().getSortedSetDocValues(sf.getName());
+        if (multiDv == null) continue;
+        singleDv = unwrap_singleValued_multiDv ? DocValues.unwrapSingleton(multiDv) : null;
+        segMax = (int) multiDv.getValueCount();
+      } else {
+        singleDv = subCtx.reader().getSortedDocValues(sf.getName());
+        if (singleDv == null) continue;
+        segMax = singleDv.getValueCount();
+      }
+      if (segMax < 1) continue;
+      if (segCounts.length < segMax) {
+        segCounts = new int[segMax];
+      } else {
+        Arrays.fill(segCounts, 0, segMax, 0);
+      }
+
+      int doc;
+      if (singleDv != null) {
+        while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+          if (singleDv.advanceExact(doc)) {
+            segCounts[singleDv.ordValue()]++;
+          }
+        }
+      } else {
+        while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+          if (multiDv.advanceExact(doc)) {
+            for (; ; ) {
+              int segOrd = (int) multiDv.nextOrd();
+              if (segOrd < 0) break;
+              segCounts[segOrd]++;
+            }
+          }
+        }
+      }
+
+      final LongValues toGlobal = ordinalMap == null ? null : ordinalMap.getGlobalOrds(subCtx.ord);
+      synchronized (base.countAcc) {
+        for (int segOrd = 0; segOrd < segMax; segOrd++) {
+          if (segCounts[segOrd] != 0) {
+            base.countAcc.incrementCount(
+                toGlobal == null ? segOrd : (int) toGlobal.get(segOrd), segCounts[segOrd]);
+          }
+        }
+      }
+    }
+    return null;
+  }
+
   private SegCountPerSeg getSegCountPerSeg(SweepDISI disi, int segMax) {
     final int size = disi.size;
     return new SegCountPerSeg(
@@ -18,6 +18,7 @@ package org.apache.solr.search.facet;
 
 import java.io.IOException;
 import java.text.ParseException;
+import java.util.List;
 import java.util.function.IntFunction;
 import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.DocValuesType;
@@ -27,6 +28,7 @@ import org.apache.lucene.index.MultiDocValues;
 import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.SimpleCollector;
 import org.apache.lucene.util.BitUtil;
@@ -89,6 +91,11 @@ class FacetFieldProcessorByHashDV extends FacetFieldProcessor {
 
     /** returns the slot */
     int add(long val) {
+      return add(val, 1);
+    }
+
+    /** Adds inc (which must be positive) to the count of val; returns the slot */
+    int add(long val, long inc) {
       if (cardinality >= threshold) {
         rehash();
       }
@@ -97,13 +104,13 @@ class FacetFieldProcessorByHashDV extends FacetFieldProcessor {
       for (int slot = h & (vals.length - 1); ; slot = (slot + ((h >> 7) | 1)) & (vals.length - 1)) {
         long count = counts[slot];
         if (count == 0) {
-          counts[slot] = 1;
+          counts[slot] = inc;
           vals[slot] = val;
           cardinality++;
           return slot;
         } else if (vals[slot] == val) {
           // val is already in the set
-          counts[slot] = count + 1;
+          counts[slot] = count + inc;
           return slot;
         }
       }
@@ -354,6 +361,10 @@ class FacetFieldProcessorByHashDV extends FacetFieldProcessor {
             }
           };
 
+      if (collectCountsInParallel(globalDocValues)) {
+        return;
+      }
+
       DocSetUtil.collectSortedDocSet(
           fcontext.base,
           fcontext.searcher.getIndexReader(),
@@ -386,6 +397,10 @@ class FacetFieldProcessorByHashDV extends FacetFieldProcessor {
 
     } else { // Numeric:
 
+      if (collectCountsInParallel(null)) {
+        return;
+      }
+
       if (sf.multiValued()) {
         DocSetUtil.collectSortedDocSet(
             fcontext.base,
@@ -450,6 +465,78 @@ class FacetFieldProcessorByHashDV extends FacetFieldProcessor {
     }
   }
 
+  /**
+   * If only counts are needed and the searcher has several slices, counts each slice into its own
+   * table in parallel, then merges them into {@link #table}.
+   *
+   * @param globalDocValues the global string values, or null for numeric fields
+   * @return false if nothing was collected, and the caller should collect serially
+   */
+  private boolean collectCountsInParallel(SortedDocValues globalDocValues) throws IOException {
+    if (collectAcc != null || allBucketsAcc != null) {
+      return false;
+    }
+    final List<LongCounts> sliceCounts =
+        collectSlicesInParallel(leaves -> countSlice(leaves, globalDocValues));
+    if (sliceCounts == null) {
+      return false;
+    }
+    for (LongCounts counts : sliceCounts) {
+      for (int slot = 0; slot < counts.numSlots(); slot++) {
+        if (counts.counts[slot] != 0) {
+          table.add(counts.vals[slot], counts.counts[slot]); // this can trigger a rehash
+        }
+      }
+    }
+    return true;
+  }
+
+  private LongCounts countSlice(LeafReaderContext[] leaves, SortedDocValues globalDocValues)
+      throws IOException {
+    final LongCounts counts = new LongCounts(MAXIMUM_STARTING_TABLE_SIZE);
+    for (LeafReaderContext ctx : leaves) {
+      final DocIdSetIterator disi = fcontext.base.iterator(ctx);
+      if (disi == null) continue;
+      int doc;
+      if (calc instanceof TermOrdCalc) {
+        final SortedDocValues values = DocValues.getSorted(ctx.reader(), sf.getName());
+        final LongValues toGlobal =
+            globalDocValues instanceof MultiDocValues.MultiSortedDocValues multiDocValues
+                ? multiDocValues.mapping.getGlobalOrds(ctx.ord)
+                : LongValues.IDENTITY;
+        while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+          if (values.advanceExact(doc)) {
+            counts.add(toGlobal.get(values.ordValue()));
+          }
+        }
+      } else if (sf.multiValued()) {
+        final SortedNumericDocValues values =
+            DocValues.getSortedNumeric(ctx.reader(), sf.getName());
+        while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+          if (values.advanceExact(doc)) {
+            long l = values.nextValue();
+            counts.add(l);
+            for (int i = 1, count = values.docValueCount(); i < count; i++) {
+              long lnew = values.nextValue();
+              if (lnew != l) {
+                counts.add(lnew);
+              }
+              l = lnew;
+            }
+          }
+        }
+      } else {
+        final NumericDocValues values = DocValues.getNumeric(ctx.reader(), sf.getName());
+        while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+          if (values.advanceExact(doc)) {
+            counts.add(values.longValue());
+          }
+        }
+      }
+    }
+    return counts;
+  }
+
   private void collectValFirstPhase(int segDoc, long val) throws IOException {
     int slot = table.add(val); // this can trigger a rehash
 
@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import com.carrotsearch.hppc.IntIntHashMap;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.IntFunction;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiDocValues;
+import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.LongValues;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.facet.SlotAcc.SlotContext;
+
+/**
+ * Approximates the top terms by count of a string docValues field, for facets with {@code
+ * approximate:true}. A first pass over the domain feeds the global ordinals to a {@link
+ * TopKSketch}, which keeps a bounded number of candidate terms. A second pass counts (and collects
+ * stats for) the candidates only, so they are reported with exact counts, using one slot per
+ * candidate instead of one per term of the field.
+ *
+ * <p>The response includes {@code maxMissedCount}, an upper bound of the count of any term that
+ * was not a candidate. When the lowest count returned is above it, the top terms are exact.
+ */
+class FacetFieldProcessorBySketchDV extends FacetFieldProcessor {
+  // candidates kept per bucket wanted, and at most
+  static final int CANDIDATES_PER_BUCKET = 2;
+  static final int MIN_CANDIDATES = 16;
+  static final int MAX_CANDIDATES = 1 << 16;
+
+  SortedSetDocValues si; // only used for term lookups (for both single and multi-valued)
+  OrdinalMap ordinalMap = null; // maps per-segment ords to global ords
+  int[] candidateOrds; // global ords, by slot
+  long maxMissedCount;
+
+  FacetFieldProcessorBySketchDV(FacetContext fcontext, FacetField freq, SchemaField sf) {
+    super(fcontext, freq, sf);
+  }
+
+  @Override
+  public void process() throws IOException {
+    super.process();
+    response = calcFacets();
+  }
+
+  private SimpleOrderedMap<Object> calcFacets() throws IOException {
+    if (sf.multiValued() || sf.getType().multiValuedFieldCache()) {
+      si = FieldUtil.getSortedSetDocValues(fcontext.qcontext, sf, null);
+      if (si instanceof MultiDocValues.MultiSortedSetDocValues) {
+        ordinalMap = ((MultiDocValues.MultiSortedSetDocValues) si).mapping;
+      }
+    } else {
+      SortedDocValues single = FieldUtil.getSortedDocValues(fcontext.qcontext, sf, null);
+      si = DocValues.singleton(single);
+      if (single instanceof MultiDocValues.MultiSortedDocValues) {
+        ordinalMap = ((MultiDocValues.MultiSortedDocValues) single).mapping;
+      }
+    }
+    if (si.getValueCount() >= Integer.MAX_VALUE) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST,
+          "Field has too many unique values. field=" + sf + " nterms= " + si.getValueCount());
+    }
+
+    findCandidates();
+
+    createCollectAcc(fcontext.base.size(), candidateOrds.length);
+
+    collectCandidates();
+
+    SimpleOrderedMap<Object> res =
+        super.findTopSlots(
+            candidateOrds.length,
+            candidateOrds.length,
+            slotNum -> { // getBucketValFromSlotNum
+              try {
+                return (Comparable) sf.getType().toObject(sf, si.lookupOrd(candidateOrds[slotNum]));
+              } catch (IOException e) {
+                throw new RuntimeException(e);
+              }
+            },
+            obj -> obj.toString());
+
+    res.add("maxMissedCount", maxMissedCount);
+    if (fcontext.isShard() && maxMissedCount > 0 && res.get("more") == null) {
+      // terms were left out, even if every candidate was returned
+      res.add("more", true);
+    }
+    candidateOrds = null; // gc
+    return res;
+  }
+
+  /** First pass: picks the candidate terms with a sketch of the counts of all the terms */
+  private void findCandidates() throws IOException {
+    long wanted = freq.offset + freq.limit + Math.max(0, freq.overrequest);
+    if (fcontext.isShard() && freq.overrequest == -1) {
+      wanted += wanted / 10 + 4; // the default overrequest of findTopSlots
+    }
+    final int numCandidates =
+        (int)
+            Math.min(
+                Math.min(MAX_CANDIDATES, Math.max(1, si.getValueCount())),
+                Math.max(MIN_CANDIDATES, CANDIDATES_PER_BUCKET * wanted));
+    final TopKSketch sketch = new TopKSketch(numCandidates);
+
+    for (LeafReaderContext subCtx : fcontext.searcher.getIndexReader().leaves()) {
+      final DocIdSetIterator disi = fcontext.base.iterator(subCtx);
+      if (disi == null) continue;
+      final SortedSetDocValues dv = DocValues.getSortedSet(subCtx.reader(), sf.getName());
+      final SortedDocValues singleDv = DocValues.unwrapSingleton(dv);
+      final LongValues toGlobal =
+          ordinalMap == null ? LongValues.IDENTITY : ordinalMap.getGlobalOrds(subCtx.ord);
+      int doc;
+      while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+        if (singleDv != null) {
+          if (singleDv.advanceExact(doc)) {
+            sketch.add((int) toGlobal.get(singleDv.ordValue()));
+          }
+        } else if (dv.advanceExact(doc)) {
+          for (int i = 0, count = dv.docValueCount(); i < count; i++) {
+            sketch.add((int) toGlobal.get(dv.nextOrd()));
+          }
+        }
+      }
+    }
+
+    candidateOrds = sketch.candidates();
+    maxMissedCount = sketch.maxMissedCount();
+  }
+
+  /** Second pass: counts and collects the docs of the candidate terms, by slot */
+  private void collectCandidates() throws IOException {
+    final IntIntHashMap slots = new IntIntHashMap(candidateOrds.length);
+    for (int slot = 0; slot < candidateOrds.length; slot++) {
+      slots.put(candidateOrds[slot], slot);
+    }
+
+    final List<LeafReaderContext> leaves = fcontext.searcher.getIndexReader().leaves();
+    for (LeafReaderContext subCtx : leaves) {
+      final DocIdSetIterator disi = fcontext.base.iterator(subCtx);
+      if (disi == null) continue;
+      setNextReaderFirstPhase(subCtx);
+      final SortedSetDocValues dv = DocValues.getSortedSet(subCtx.reader(), sf.getName());
+      final SortedDocValues singleDv = DocValues.unwrapSingleton(dv);
+      final LongValues toGlobal =
+          ordinalMap == null ? LongValues.IDENTITY : ordinalMap.getGlobalOrds(subCtx.ord);
+      int doc;
+      while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+        if (singleDv != null) {
+          if (singleDv.advanceExact(doc)) {
+            collectOrd(doc, slots.getOrDefault((int) toGlobal.get(singleDv.ordValue()), -1));
+          }
+        } else if (dv.advanceExact(doc)) {
+          for (int i = 0, count = dv.docValueCount(); i < count; i++) {
+            collectOrd(doc, slots.getOrDefault((int) toGlobal.get(dv.nextOrd()), -1));
+          }
+        }
+      }
+    }
+  }
+
+  private void collectOrd(int segDoc, int slot) throws IOException {
+    if (slot < 0) {
+      return; // not a candidate
+    }
+    countAcc.incrementCount(slot, 1);
+    collectFirstPhase(segDoc, slot, slotContext);
+  }
+
+  /**
+   * SlotContext to use during all {@link SlotAcc} collection.
+   *
+   * <p>This avoids a memory allocation for each invocation of collectOrd.
+   */
+  private final IntFunction<SlotContext> slotContext =
+      (slotNum) -> {
+        try {
+          Object value = sf.getType().toObject(sf, si.lookupOrd(candidateOrds[slotNum]));
+          return new SlotContext(makeBucketQuery(value.toString()));
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      };
+}
@@ -34,11 +34,12 @@ import org.apache.solr.handler.component.ResponseBuilder;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.request.SolrRequestInfo;
 import org.apache.solr.schema.SchemaField;
-import org.apache.solr.search.BitDocSet;
 import org.apache.solr.search.DocIterator;
 import org.apache.solr.search.DocSet;
+import org.apache.solr.search.OffHeapBitDocSet;
 import org.apache.solr.search.QParser;
 import org.apache.solr.search.QueryUtils;
+import org.apache.solr.search.RoaringDocSet;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.SyntaxError;
 import org.apache.solr.search.facet.SlotAcc.SlotContext;
@@ -267,7 +268,11 @@ public abstract class FacetProcessor<T extends FacetRequest> {
           "Error parsing block join parent specification: " + parentStr);
     }
 
-    BitDocSet parents = fcontext.searcher.getDocSetBits(parentQuery);
+    DocSet parents = fcontext.searcher.getDocSet(parentQuery);
+    if (!(parents instanceof OffHeapBitDocSet || parents instanceof RoaringDocSet)) {
+      // cached as bits for the next buckets; off-heap or compressed entries are read in place
+      parents = fcontext.searcher.getDocSetBits(parentQuery);
+    }
     DocSet input = fcontext.base;
     DocSet result;
 
@@ -461,6 +466,11 @@ public abstract class FacetProcessor<T extends FacetRequest> {
       throws IOException {
 
     boolean emptyDomain = domain == null || domain.size() == 0;
+    // count the terms of sibling field facets together, in one pass over the domain
+    MultiFieldCounts multiFieldCounts =
+        skip || emptyDomain || facetInfo != null
+            ? null
+            : MultiFieldCounts.forSubFacets(fcontext, freq, domain);
 
     for (Map.Entry<String, FacetRequest> sub : freq.getSubFacets().entrySet()) {
       FacetRequest subRequest = sub.getValue();
@@ -485,6 +495,7 @@ public abstract class FacetProcessor<T extends FacetRequest> {
       // make a new context for each sub-facet since they can change the domain
       FacetContext subContext = fcontext.sub(filter, domain);
       subContext.facetInfo = facetInfoSub;
+      subContext.multiFieldCounts = multiFieldCounts;
       if (!skip) {
         // turn off the skip flag if we're not skipping this bucket
         subContext.flags &= ~FacetContext.SKIP_FACET;
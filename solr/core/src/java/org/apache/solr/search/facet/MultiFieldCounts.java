@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiDocValues;
+import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.LongValues;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.DocSet;
+
+/**
+ * Counts the terms of several docValues fields over the same domain in a single pass over its
+ * documents. The count-only terms facets that are siblings under one parent each iterate the
+ * domain on their own otherwise; this visits every document once and advances the docValues of
+ * all the fields for it, then hands each facet its counts by global ord.
+ *
+ * <p>Enabled with the {@value #SINGLE_PASS_PARAM} request param. Only used by {@link
+ * FacetFieldProcessorByArrayDV} when it would count the full range of terms per segment, without
+ * stats. Facets that took their counts from here report it in their debug info.
+ */
+final class MultiFieldCounts {
+  static final String SINGLE_PASS_PARAM = "facet.singlePass";
+  static final String SINGLE_PASS_DEBUG_KEY = "singlePass";
+
+  private final FacetContext fcontext;
+  private final DocSet base;
+  private final SchemaField[] fields;
+  // the number of facets on each field that have yet to take their counts
+  private final Map<String, Integer> pending = new HashMap<>();
+  private Map<String, int[]> counts; // computed on first use
+
+  private MultiFieldCounts(FacetContext fcontext, DocSet base, SchemaField[] fields) {
+    this.fcontext = fcontext;
+    this.base = base;
+    this.fields = fields;
+  }
+
+  /**
+   * Returns the counts to share between the sub-facets of the given request over the domain, or
+   * null if single pass counting is not enabled or fewer than two sub-facets can use it.
+   */
+  static MultiFieldCounts forSubFacets(FacetContext fcontext, FacetRequest freq, DocSet domain)
+      throws IOException {
+    if (fcontext.req == null || !fcontext.req.getParams().getBool(SINGLE_PASS_PARAM, false)) {
+      return null;
+    }
+    final Map<String, SchemaField> fields = new LinkedHashMap<>();
+    final Map<String, Integer> uses = new HashMap<>();
+    for (FacetRequest sub : freq.getSubFacets().values()) {
+      if (!(sub instanceof FacetField) || !canCount((FacetField) sub)) continue;
+      final SchemaField sf =
+          fcontext.searcher.getSchema().getFieldOrNull(((FacetField) sub).field);
+      if (sf != null && canCount(sf) && manyHitsPerBucket(fcontext, sf, domain)) {
+        fields.putIfAbsent(sf.getName(), sf);
+        uses.merge(sf.getName(), 1, Integer::sum);
+      }
+    }
+    if (uses.values().stream().mapToInt(Integer::intValue).sum() < 2) {
+      return null;
+    }
+    final MultiFieldCounts multiFieldCounts =
+        new MultiFieldCounts(fcontext, domain, fields.values().toArray(new SchemaField[0]));
+    multiFieldCounts.pending.putAll(uses);
+    return multiFieldCounts;
+  }
+
+  /** Whether the facet would be processed by {@link FacetFieldProcessorByArrayDV}, only counting */
+  private static boolean canCount(FacetField freq) {
+    if (freq.domain != null
+        || freq.prefix != null
+        || freq.allBuckets
+        || freq.perSeg != null
+        || !freq.getFacetStats().isEmpty()
+        || !freq.getSubFacets().isEmpty()) {
+      return false;
+    }
+    if (freq.method == FacetField.FacetMethod.ENUM
+        || freq.method == FacetField.FacetMethod.STREAM
+        || freq.method == FacetField.FacetMethod.DVHASH) {
+      return false;
+    }
+    return true;
+  }
+
+  private static boolean canCount(SchemaField sf) {
+    return sf.hasDocValues() && sf.getType().getNumberType() == null;
+  }
+
+  /** Whether the facet on the field would count per segment, as a single pass does */
+  private static boolean manyHitsPerBucket(FacetContext fcontext, SchemaField sf, DocSet domain)
+      throws IOException {
+    final long valueCount =
+        isMultiValued(sf)
+            ? FieldUtil.getSortedSetDocValues(fcontext.qcontext, sf, null).getValueCount()
+            : FieldUtil.getSortedDocValues(fcontext.qcontext, sf, null).getValueCount();
+    return FacetFieldProcessorByArrayDV.manyHitsPerBucket(
+        domain.size(), isMultiValued(sf), valueCount);
+  }
+
+  /**
+   * Returns the counts of the field by global ord, or null if the field was not counted over the
+   * given domain. Each facet on the field takes its counts once, after which they are released.
+   */
+  int[] getCounts(SchemaField sf, DocSet domain) throws IOException {
+    if (domain != base || !pending.containsKey(sf.getName())) {
+      return null;
+    }
+    if (counts == null) {
+      counts = countAll();
+    }
+    final int[] fieldCounts = counts.get(sf.getName());
+    if (pending.merge(sf.getName(), -1, Integer::sum) == 0) {
+      pending.remove(sf.getName());
+      counts.remove(sf.getName());
+    }
+    return fieldCounts;
+  }
+
+  private Map<String, int[]> countAll() throws IOException {
+    final int[] valueCounts = new int[fields.length];
+    final OrdinalMap[] ordinalMaps = new OrdinalMap[fields.length];
+    for (int i = 0; i < fields.length; i++) {
+      final SchemaField sf = fields[i];
+      final long valueCount;
+      if (isMultiValued(sf)) {
+        SortedSetDocValues si = FieldUtil.getSortedSetDocValues(fcontext.qcontext, sf, null);
+        if (si instanceof MultiDocValues.MultiSortedSetDocValues) {
+          ordinalMaps[i] = ((MultiDocValues.MultiSortedSetDocValues) si).mapping;
+        }
+        valueCount = si.getValueCount();
+      } else {
+        SortedDocValues si = FieldUtil.getSortedDocValues(fcontext.qcontext, sf, null);
+        if (si instanceof MultiDocValues.MultiSortedDocValues) {
+          ordinalMaps[i] = ((MultiDocValues.MultiSortedDocValues) si).mapping;
+        }
+        valueCount = si.getValueCount();
+      }
+      // leave the error reporting for too many terms to the facet itself
+      valueCounts[i] = valueCount >= Integer.MAX_VALUE ? -1 : (int) valueCount;
+    }
+
+    final List<int[][]> sliceCounts;
+    final IndexSearcher.LeafSlice[] slices = fcontext.searcher.getSlices();
+    if (slices.length <= 1) {
+      final List<LeafReaderContext> leaves = fcontext.searcher.getIndexReader().leaves();
+      sliceCounts =
+          List.of(
+              countSlice(leaves.toArray(new LeafReaderContext[0]), valueCounts, ordinalMaps));
+    } else {
+      final List<Callable<int[][]>> tasks = new ArrayList<>(slices.length);
+      for (IndexSearcher.LeafSlice slice : slices) {
+        tasks.add(() -> countSlice(slice.leaves, valueCounts, ordinalMaps));
+      }
+      sliceCounts = fcontext.searcher.getTaskExecutor().invokeAll(tasks);
+    }
+
+    final Map<String, int[]> result = new HashMap<>();
+    for (int i = 0; i < fields.length; i++) {
+      if (valueCounts[i] < 0) continue;
+      final int[] fieldCounts = sliceCounts.get(0)[i];
+      for (int s = 1; s < sliceCounts.size(); s++) {
+        final int[] other = sliceCounts.get(s)[i];
+        for (int ord = 0; ord < fieldCounts.length; ord++) {
+          fieldCounts[ord] += other[ord];
+        }
+      }
+      result.put(fields[i].getName(), fieldCounts);
+    }
+    return result;
+  }
+
+  /** Counts the base docs of the given leaves for all the fields, by global ord. */
+  private int[][] countSlice(
+      LeafReaderContext[] leaves, int[] valueCounts, OrdinalMap[] ordinalMaps) throws IOException {
+    final int numFields = fields.length;
+    final int[][] counts = new int[numFields][];
+    final int[][] segCounts = new int[numFields][];
+    for (int i = 0; i < numFields; i++) {
+      counts[i] = new int[Math.max(valueCounts[i], 0)];
+      segCounts[i] = new int[0];
+    }
+    final SortedDocValues[] singleDvs = new SortedDocValues[numFields];
+    final SortedSetDocValues[] multiDvs = new SortedSetDocValues[numFields];
+    final int[] segMaxes = new int[numFields];
+    final int[] active = new int[numFields];
+
+    for (LeafReaderContext subCtx : leaves) {
+      final DocIdSetIterator disi = base.iterator(subCtx);
+      if (disi == null) continue;
+
+      int numActive = 0;
+      for (int i = 0; i < numFields; i++) {
+        if (valueCounts[i] <= 0) continue;
+        singleDvs[i] = null;
+        multiDvs[i] = null;
+        if (isMultiValued(fields[i])) {
+          SortedSetDocValues multiDv = subCtx.reader().getSortedSetDocValues(fields[i].getName());
+          if (multiDv == null) continue;
+          singleDvs[i] =
+              FacetFieldProcessorByArrayDV.unwrap_singleValued_multiDv
+                  ? DocValues.unwrapSingleton(multiDv)
+                  : null;
+          multiDvs[i] = singleDvs[i] == null ? multiDv : null;
+          segMaxes[i] = (int) multiDv.getValueCount();
+        } else {
+          singleDvs[i] = subCtx.reader().getSortedDocValues(fields[i].getName());
+          if (singleDvs[i] == null) continue;
+          segMaxes[i] = singleDvs[i].getValueCount();
+        }
+        if (segMaxes[i] < 1) continue;
+        if (segCounts[i].length < segMaxes[i]) {
+          segCounts[i] = new int[segMaxes[i]];
+        } else {
+          Arrays.fill(segCounts[i], 0, segMaxes[i], 0);
+        }
+        active[numActive++] = i;
+      }
+      if (numActive == 0) continue;
+
+      int doc;
+      while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+        for (int a = 0; a < numActive; a++) {
+          final int i = active[a];
+          final SortedDocValues singleDv = singleDvs[i];
+          if (singleDv != null) {
+            if (singleDv.advanceExact(doc)) {
+              segCounts[i][singleDv.ordValue()]++;
+            }
+          } else {
+            final SortedSetDocValues multiDv = multiDvs[i];
+            if (multiDv.advanceExact(doc)) {
+              for (int o = 0, count = multiDv.docValueCount(); o < count; o++) {
+                segCounts[i][(int) multiDv.nextOrd()]++;
+              }
+            }
+          }
+        }
+      }
+
+      for (int a = 0; a < numActive; a++) {
+        final int i = active[a];
+        final LongValues toGlobal =
+            ordinalMaps[i] == null ? null : ordinalMaps[i].getGlobalOrds(subCtx.ord);
+        final int[] fieldSegCounts = segCounts[i];
+        for (int segOrd = 0; segOrd < segMaxes[i]; segOrd++) {
+          if (fieldSegCounts[segOrd] != 0) {
+            counts[i][toGlobal == null ? segOrd : (int) toGlobal.get(segOrd)] +=
+                fieldSegCounts[segOrd];
+          }
+        }
+      }
+    }
+    return counts;
+  }
+
+  private static boolean isMultiValued(SchemaField sf) {
+    return sf.multiValued() || sf.getType().multiValuedFieldCache();
+  }
+}
@@ -0,0 +1,288 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.queries.function.ValueSource;
+import org.apache.lucene.util.NumericUtils;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.function.FieldNameValueSource;
+
+/**
+ * Percentiles estimated with a {@link QuantileSketch}. Unlike {@link PercentileAgg}, the memory
+ * of each slot and the size of the shard responses are bounded, and percentiles are accurate within
+ * {@link QuantileSketch#RELATIVE_ACCURACY} of their value.
+ */
+public class PercentileSketchAgg extends SimpleAggValueSource {
+  public static final String NAME = "percentileSketch";
+
+  final List<Double> percentiles;
+
+  public PercentileSketchAgg(ValueSource vs, List<Double> percentiles) {
+    super(NAME, vs);
+    this.percentiles = percentiles;
+  }
+
+  @Override
+  public SlotAcc createSlotAcc(FacetContext fcontext, long numDocs, int numSlots)
+      throws IOException {
+    ValueSource vs = getArg();
+
+    if (vs instanceof FieldNameValueSource) {
+      String field = ((FieldNameValueSource) vs).getFieldName();
+      SchemaField sf = fcontext.qcontext.searcher().getSchema().getField(field);
+      if (sf.getType().getNumberType() == null) {
+        throw new SolrException(
+            SolrException.ErrorCode.BAD_REQUEST,
+            name() + " aggregation not supported for " + sf.getType().getTypeName());
+      }
+      if (sf.multiValued() || sf.getType().multiValuedFieldCache()) {
+        if (sf.hasDocValues() && sf.getType().isPointField()) {
+          return new SortedNumericAcc(fcontext, sf, numSlots);
+        }
+        throw new SolrException(
+            SolrException.ErrorCode.BAD_REQUEST,
+            name() + " aggregation not supported for multi-valued fields without point docValues");
+      }
+      vs = sf.getType().getValueSource(sf, null);
+    }
+    return new Acc(vs, fcontext, numSlots);
+  }
+
+  @Override
+  public FacetMerger createFacetMerger(Object prototype) {
+    return new Merger();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof PercentileSketchAgg other)) return false;
+    return this.arg.equals(other.arg) && this.percentiles.equals(other.percentiles);
+  }
+
+  @Override
+  public int hashCode() {
+    return super.hashCode() * 31 + percentiles.hashCode();
+  }
+
+  private Object getValueFromSketch(QuantileSketch sketch) {
+    if (sketch == null) {
+      return null;
+    }
+    if (percentiles.size() == 1) {
+      return sketch.quantile(percentiles.get(0) * 0.01);
+    }
+    List<Double> lst = new ArrayList<>(percentiles.size());
+    for (Double percentile : percentiles) {
+      lst.add(sketch.quantile(percentile * 0.01));
+    }
+    return lst;
+  }
+
+  /** Keeps a sketch per slot */
+  private class SketchSlots {
+    QuantileSketch[] sketches;
+    double[] sortvals;
+
+    SketchSlots(int numSlots) {
+      sketches = new QuantileSketch[numSlots];
+    }
+
+    QuantileSketch get(int slot) {
+      QuantileSketch sketch = sketches[slot];
+      if (sketch == null) {
+        sketches[slot] = sketch = new QuantileSketch();
+      }
+      return sketch;
+    }
+
+    int compare(int slotA, int slotB) {
+      if (sortvals == null) {
+        sortvals = new double[sketches.length];
+        double sortp = percentiles.get(0) * 0.01;
+        for (int i = 0; i < sketches.length; i++) {
+          sortvals[i] =
+              sketches[i] == null ? Double.NEGATIVE_INFINITY : sketches[i].quantile(sortp);
+        }
+      }
+      return Double.compare(sortvals[slotA], sortvals[slotB]);
+    }
+
+    Object getValue(FacetContext fcontext, int slot) {
+      QuantileSketch sketch = sketches[slot];
+      if (fcontext.isShard()) {
+        return sketch == null ? null : sketch.toBytes();
+      }
+      if (sortvals != null && percentiles.size() == 1) {
+        // we've already calculated everything we need
+        return sketch != null ? sortvals[slot] : null;
+      }
+      return getValueFromSketch(sketch);
+    }
+
+    void reset() {
+      sketches = new QuantileSketch[sketches.length];
+      sortvals = null;
+    }
+
+    void resize(SlotAcc.Resizer resizer) {
+      sketches = resizer.resize(sketches, null);
+    }
+  }
+
+  class Acc extends SlotAcc.FuncSlotAcc {
+    private final SketchSlots slots;
+
+    public Acc(ValueSource values, FacetContext fcontext, int numSlots) {
+      super(values, fcontext, numSlots);
+      slots = new SketchSlots(numSlots);
+    }
+
+    @Override
+    public void collect(int doc, int slotNum, IntFunction<SlotContext> slotContext)
+        throws IOException {
+      if (!values.exists(doc)) return;
+      slots.get(slotNum).add(values.doubleVal(doc));
+    }
+
+    @Override
+    public int compare(int slotA, int slotB) {
+      return slots.compare(slotA, slotB);
+    }
+
+    @Override
+    public Object getValue(int slotNum) {
+      return slots.getValue(fcontext, slotNum);
+    }
+
+    @Override
+    public void reset() {
+      slots.reset();
+    }
+
+    @Override
+    public void resize(Resizer resizer) {
+      slots.resize(resizer);
+    }
+  }
+
+  class SortedNumericAcc extends DocValuesAcc {
+    private final SketchSlots slots;
+    SortedNumericDocValues values;
+
+    public SortedNumericAcc(FacetContext fcontext, SchemaField sf, int numSlots)
+        throws IOException {
+      super(fcontext, sf);
+      slots = new SketchSlots(numSlots);
+    }
+
+    @Override
+    protected void collectValues(int doc, int slot) throws IOException {
+      QuantileSketch sketch = slots.get(slot);
+      for (int i = 0, count = values.docValueCount(); i < count; i++) {
+        sketch.add(getDouble(values.nextValue()));
+      }
+    }
+
+    @Override
+    public void setNextReader(LeafReaderContext readerContext) throws IOException {
+      super.setNextReader(readerContext);
+      values = DocValues.getSortedNumeric(readerContext.reader(), sf.getName());
+    }
+
+    @Override
+    protected boolean advanceExact(int doc) throws IOException {
+      return values.advanceExact(doc);
+    }
+
+    /** converts given long value to double based on field type */
+    private double getDouble(long val) {
+      switch (sf.getType().getNumberType()) {
+        case FLOAT:
+          return NumericUtils.sortableIntToFloat((int) val);
+        case DOUBLE:
+          return NumericUtils.sortableLongToDouble(val);
+        default:
+          return val;
+      }
+    }
+
+    @Override
+    public int compare(int slotA, int slotB) {
+      return slots.compare(slotA, slotB);
+    }
+
+    @Override
+    public Object getValue(int slotNum) {
+      return slots.getValue(fcontext, slotNum);
+    }
+
+    @Override
+    public void reset() {
+      slots.reset();
+    }
+
+    @Override
+    public void resize(Resizer resizer) {
+      slots.resize(resizer);
+    }
+  }
+
+  class Merger extends FacetModule.FacetSortableMerger {
+    private QuantileSketch sketch;
+    private Double sortVal;
+
+    @Override
+    public void merge(Object facetResult, Context mcontext) {
+      byte[] arr = (byte[]) facetResult;
+      if (arr == null) return; // an explicit null can mean no values in the field
+      QuantileSketch subSketch = QuantileSketch.fromBytes(arr);
+      if (sketch == null) {
+        sketch = subSketch;
+      } else {
+        sketch.merge(subSketch);
+      }
+    }
+
+    @Override
+    public Object getMergedResult() {
+      if (percentiles.size() == 1 && sketch != null) return getSortVal();
+      return getValueFromSketch(sketch);
+    }
+
+    @Override
+    public int compareTo(
+        FacetModule.FacetSortableMerger other, FacetRequest.SortDirection direction) {
+      return Double.compare(getSortVal(), ((Merger) other).getSortVal());
+    }
+
+    private Double getSortVal() {
+      if (sortVal == null) {
+        sortVal =
+            sketch == null ? Double.NEGATIVE_INFINITY : sketch.quantile(percentiles.get(0) * 0.01);
+      }
+      return sortVal;
+    }
+  }
+}
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import java.util.Arrays;
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.ByteArrayDataOutput;
+
+/**
+ * A mergeable quantile sketch with bounded memory, after DDSketch (Masson, Rim and Lee, "DDSketch:
+ * A Fast and Fully-Mergeable Quantile Sketch with Relative-Error Guarantees", VLDB 2019).
+ *
+ * <p>Values are counted in logarithmically sized bins, so that quantiles are estimated within
+ * {@link #RELATIVE_ACCURACY} of their value. Positive and negative values are kept in separate
+ * dense arrays of at most {@link #MAX_BINS} counts. When values span more bins than that, the bins
+ * of the smallest magnitudes are collapsed, so the accuracy of high quantiles is kept.
+ *
+ * <p>Not thread safe.
+ */
+final class QuantileSketch {
+  static final double RELATIVE_ACCURACY = 0.01;
+  static final int MAX_BINS = 1024;
+
+  private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+  private static final double MULTIPLIER = 1 / Math.log(GAMMA);
+  private static final byte VERSION = 1;
+
+  private final Bins positive = new Bins();
+  private final Bins negative = new Bins();
+  private long zeroCount;
+  private long count;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+
+  /** Adds a value, ignoring NaN and infinite values. */
+  void add(double value) {
+    if (!Double.isFinite(value)) {
+      return;
+    }
+    if (value > 0) {
+      positive.add(index(value), 1);
+    } else if (value < 0) {
+      negative.add(index(-value), 1);
+    } else {
+      zeroCount++;
+    }
+    count++;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+  }
+
+  /** Adds all the values of another sketch. */
+  void merge(QuantileSketch other) {
+    positive.merge(other.positive);
+    negative.merge(other.negative);
+    zeroCount += other.zeroCount;
+    count += other.count;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+  }
+
+  long getCount() {
+    return count;
+  }
+
+  /**
+   * Estimates the value at the given quantile.
+   *
+   * @param q the quantile, between 0 and 1
+   * @return the estimated value, or NaN if the sketch is empty
+   */
+  double quantile(double q) {
+    if (count == 0) {
+      return Double.NaN;
+    }
+    final long rank = (long) (q * (count - 1));
+    // the extremes are kept exactly, while bins only hold them within the relative accuracy
+    if (rank <= 0) {
+      return min;
+    }
+    if (rank >= count - 1) {
+      return max;
+    }
+    long seen = 0;
+    // the largest negative bins hold the smallest values
+    for (int i = negative.length - 1; i >= 0; i--) {
+      seen += negative.counts[i];
+      if (seen > rank) {
+        return clamp(-value(negative.offset + i));
+      }
+    }
+    seen += zeroCount;
+    if (seen > rank) {
+      return clamp(0);
+    }
+    for (int i = 0; i < positive.length; i++) {
+      seen += positive.counts[i];
+      if (seen > rank) {
+        return clamp(value(positive.offset + i));
+      }
+    }
+    return max;
+  }
+
+  private double clamp(double value) {
+    return Math.max(min, Math.min(max, value));
+  }
+
+  private static int index(double magnitude) {
+    return (int) Math.ceil(Math.log(magnitude) * MULTIPLIER);
+  }
+
+  /** The value within the relative accuracy of every value of the bin */
+  private static double value(int index) {
+    return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+  }
+
+  /** Serializes the sketch, in a form read by {@link #fromBytes(byte[])}. */
+  byte[] toBytes() {
+    // 10 bytes per vlong at most
+    byte[] bytes = new byte[1 + 4 * 10 + 2 * 10 + (positive.length + negative.length + 2) * 10];
+    ByteArrayDataOutput out = new ByteArrayDataOutput(bytes);
+    out.writeByte(VERSION);
+    out.writeVLong(count);
+    out.writeVLong(zeroCount);
+    out.writeLong(Double.doubleToLongBits(min));
+    out.writeLong(Double.doubleToLongBits(max));
+    positive.write(out);
+    negative.write(out);
+    return Arrays.copyOf(bytes, out.getPosition());
+  }
+
+  static QuantileSketch fromBytes(byte[] bytes) {
+    ByteArrayDataInput in = new ByteArrayDataInput(bytes);
+    byte version = in.readByte();
+    if (version != VERSION) {
+      throw new IllegalArgumentException("Unknown quantile sketch version " + version);
+    }
+    QuantileSketch sketch = new QuantileSketch();
+    sketch.count = in.readVLong();
+    sketch.zeroCount = in.readVLong();
+    sketch.min = Double.longBitsToDouble(in.readLong());
+    sketch.max = Double.longBitsToDouble(in.readLong());
+    sketch.positive.read(in);
+    sketch.negative.read(in);
+    return sketch;
+  }
+
+  /** Counts of consecutive bin indexes, starting at offset. */
+  private static final class Bins {
+    long[] counts;
+    int offset;
+    int length; // counts past length are 0
+
+    void add(int index, long n) {
+      if (length == 0) {
+        if (counts == null) {
+          counts = new long[16];
+        }
+        offset = index;
+        length = 1;
+        counts[0] += n;
+        return;
+      }
+      int low = Math.min(index, offset);
+      final int high = Math.max(index, offset + length - 1);
+      if ((long) high - low + 1 > MAX_BINS) {
+        // collapse the smallest magnitudes
+        low = high - MAX_BINS + 1;
+        index = Math.max(index, low);
+      }
+      setRange(low, high);
+      counts[index - offset] += n;
+    }
+
+    /** Uses the bins from low to high, adding the counts of the bins below low to it. */
+    private void setRange(int low, int high) {
+      final int newLength = high - low + 1;
+      if (low == offset && newLength <= counts.length) {
+        length = newLength;
+        return;
+      }
+      long[] newCounts =
+          new long[Math.max(newLength, Math.min(MAX_BINS, counts.length * 2))];
+      for (int i = 0; i < length; i++) {
+        newCounts[Math.max(offset + i, low) - low] += counts[i];
+      }
+      counts = newCounts;
+      offset = low;
+      length = newLength;
+    }
+
+    void merge(Bins other) {
+      if (other.length == 0) {
+        return;
+      }
+      // extend to both ends first, so that the counts are copied once
+      add(other.offset, 0);
+      add(other.offset + other.length - 1, 0);
+      for (int i = 0; i < other.length; i++) {
+        if (other.counts[i] != 0) {
+          add(other.offset + i, other.counts[i]);
+        }
+      }
+    }
+
+    void write(ByteArrayDataOutput out) {
+      out.writeVInt(length);
+      if (length > 0) {
+        out.writeZInt(offset);
+        for (int i = 0; i < length; i++) {
+          out.writeVLong(counts[i]);
+        }
+      }
+    }
+
+    void read(ByteArrayDataInput in) {
+      final int n = in.readVInt();
+      if (n > 0) {
+        offset = in.readZInt();
+        length = n;
+        counts = new long[n];
+        for (int i = 0; i < n; i++) {
+          counts[i] = in.readVLong();
+        }
+      }
+    }
+  }
+}
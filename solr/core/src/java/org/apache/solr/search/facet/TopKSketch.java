@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import com.carrotsearch.hppc.IntIntHashMap;
+import java.util.Arrays;
+import org.apache.lucene.util.BitUtil;
+
+/**
+ * Finds the most frequent of a stream of int keys (term ordinals) in memory bounded by the number
+ * of keys wanted rather than by the number of distinct keys. Occurrences are counted in a Count-Min
+ * sketch (Cormode and Muthukrishnan, "An Improved Data Stream Summary: The Count-Min Sketch and its
+ * Applications", 2005) with conservative updates, and the keys with the highest estimates seen so
+ * far are kept as candidates in an indexed min-heap.
+ *
+ * <p>Estimates never undercount and never decrease, so a key that is not a candidate at the end
+ * was left out when its estimate was at most the lowest candidate estimate: {@link
+ * #maxMissedCount()} bounds the true count of every key that is not returned by {@link
+ * #candidates()}. The counts of the candidates themselves are to be computed exactly by the caller.
+ *
+ * <p>Not thread safe.
+ */
+final class TopKSketch {
+  static final int DEPTH = 4;
+  static final int MAX_WIDTH = 1 << 20;
+
+  private final int[][] counters;
+  private final int mask;
+
+  // indexed min-heap of the candidates, ordered by estimate
+  private final int[] heapKeys;
+  private final int[] heapEstimates;
+  private final IntIntHashMap heapIndex; // key -> position in the heap
+  private int size;
+  private boolean dropped; // whether any key was left out of, or removed from, the candidates
+
+  /**
+   * @param numCandidates the number of keys to keep as candidates, typically a few times the
+   *     number of keys wanted
+   */
+  TopKSketch(int numCandidates) {
+    if (numCandidates < 1) {
+      throw new IllegalArgumentException("numCandidates must be positive: " + numCandidates);
+    }
+    final long width = BitUtil.nextHighestPowerOfTwo(Math.max(64L, 16L * numCandidates));
+    counters = new int[DEPTH][(int) Math.min(MAX_WIDTH, width)];
+    mask = counters[0].length - 1;
+    heapKeys = new int[numCandidates];
+    heapEstimates = new int[numCandidates];
+    heapIndex = new IntIntHashMap(numCandidates);
+  }
+
+  /** Counts one occurrence of the key. */
+  void add(int key) {
+    int estimate = Integer.MAX_VALUE;
+    for (int row = 0; row < DEPTH; row++) {
+      estimate = Math.min(estimate, counters[row][hash(key, row)]);
+    }
+    // conservative update: only raise the counters that would otherwise hold the new estimate
+    estimate++;
+    for (int row = 0; row < DEPTH; row++) {
+      final int[] rowCounters = counters[row];
+      final int bucket = hash(key, row);
+      if (rowCounters[bucket] < estimate) {
+        rowCounters[bucket] = estimate;
+      }
+    }
+
+    final int pos = heapIndex.getOrDefault(key, -1);
+    if (pos >= 0) {
+      heapEstimates[pos] = estimate;
+      siftDown(pos);
+    } else if (size < heapKeys.length) {
+      heapKeys[size] = key;
+      heapEstimates[size] = estimate;
+      heapIndex.put(key, size);
+      siftUp(size++);
+    } else {
+      dropped = true;
+      if (estimate > heapEstimates[0]) {
+        heapIndex.remove(heapKeys[0]);
+        heapKeys[0] = key;
+        heapEstimates[0] = estimate;
+        heapIndex.put(key, 0);
+        siftDown(0);
+      }
+    }
+  }
+
+  /** Returns the candidate keys in ascending order. */
+  int[] candidates() {
+    final int[] keys = Arrays.copyOf(heapKeys, size);
+    Arrays.sort(keys);
+    return keys;
+  }
+
+  /**
+   * Returns an upper bound of the count of any key that is not a candidate, or 0 if every key that
+   * was added is a candidate.
+   */
+  long maxMissedCount() {
+    return dropped ? heapEstimates[0] : 0;
+  }
+
+  private int hash(int key, int row) {
+    // murmur3 finalizer, seeded per row
+    int h = key * 0x9E3779B9 + (row + 1) * 0x85EBCA6B;
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    h *= 0xC2B2AE35;
+    h ^= h >>> 16;
+    return h & mask;
+  }
+
+  private void siftUp(int pos) {
+    while (pos > 0) {
+      final int parent = (pos - 1) >>> 1;
+      if (heapEstimates[parent] <= heapEstimates[pos]) {
+        break;
+      }
+      swap(pos, parent);
+      pos = parent;
+    }
+  }
+
+  private void siftDown(int pos) {
+    while (true) {
+      final int left = 2 * pos + 1;
+      if (left >= size) {
+        break;
+      }
+      final int right = left + 1;
+      final int child =
+          right < size && heapEstimates[right] < heapEstimates[left] ? right : left;
+      if (heapEstimates[pos] <= heapEstimates[child]) {
+        break;
+      }
+      swap(pos, child);
+      pos = child;
+    }
+  }
+
+  private void swap(int a, int b) {
+    final int key = heapKeys[a];
+    final int estimate = heapEstimates[a];
+    heapKeys[a] = heapKeys[b];
+    heapEstimates[a] = heapEstimates[b];
+    heapKeys[b] = key;
+    heapEstimates[b] = estimate;
+    heapIndex.put(heapKeys[a], a);
+    heapIndex.put(heapKeys[b], b);
+  }
+}
@@ -201,6 +201,10 @@ public class AddUpdateCommand extends UpdateCommand {
    * The SolrInputDocument itself may be modified, which will be reflected in the update log. This
    * should only be called once. Any changes made to the returned Document(s) will not be reflected
    * in the SolrInputDocument, or future calls to this method.
+   *
+   * <p>A single document may share field instances with the documents built before by the same
+   * thread, so it must be indexed before the next one is built. Nested blocks don't, as the
+   * IndexWriter may build the next document of a block before indexing the current one.
    */
   Iterable<Document> makeLuceneDocs() {
     // perhaps this should move to UpdateHandler or DocumentBuilder?
@@ -210,7 +214,12 @@ public class AddUpdateCommand extends UpdateCommand {
       final boolean forInPlaceUpdate = false;
       final boolean ignoreNestedDocs = false; // throw an exception if found
       Document doc =
-          DocumentBuilder.toDocument(solrDoc, req.getSchema(), forInPlaceUpdate, ignoreNestedDocs);
+          DocumentBuilder.toDocument(
+              solrDoc,
+              req.getSchema(),
+              forInPlaceUpdate,
+              ignoreNestedDocs,
+              DocumentBuilder.REUSE_FIELDS);
       return Collections.singleton(doc);
     }
 
@@ -229,8 +238,17 @@ public class AddUpdateCommand extends UpdateCommand {
       // instead.
     }
 
+    if (all.size() == 1) {
+      return Collections.singleton(
+          DocumentBuilder.toDocument(
+              all.get(0), req.getSchema(), false, true, DocumentBuilder.REUSE_FIELDS));
+    }
+    // with an index sort, IndexWriter looks for the next document of a block before indexing the
+    // current one, so these must not share fields
     return () ->
-        all.stream().map(sdoc -> DocumentBuilder.toDocument(sdoc, req.getSchema())).iterator();
+        all.stream()
+            .map(sdoc -> DocumentBuilder.toDocument(sdoc, req.getSchema(), false, true))
+            .iterator();
   }
 
   private void addRootField(SolrInputDocument sdoc, String rootId) {
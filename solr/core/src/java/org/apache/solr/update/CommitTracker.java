@@ -51,11 +51,15 @@ public final class CommitTracker implements Runnable {
   public static final int DOC_COMMIT_DELAY_MS = 1;
   // scheduler delay for maxSize-triggered autocommits
   public static final int SIZE_COMMIT_DELAY_MS = 1;
+  // with maxAdaptiveTime, time-triggered autocommits are delayed to at least this many times the
+  // duration of recent ones
+  static final int ADAPTIVE_TIME_FACTOR = 4;
 
   // settings, not final so we can change them in testing
   private int docsUpperBound;
   private long timeUpperBound;
   private long tLogFileSizeUpperBound;
+  private long maxAdaptiveTime = -1;
 
   // note: can't use ExecutorsUtil because it doesn't have a *scheduled* ExecutorService.
   //  Not a big deal but it means we must take care of MDC logging here.
@@ -66,6 +70,8 @@ public final class CommitTracker implements Runnable {
   // state
   private AtomicLong docsSinceCommit = new AtomicLong(0);
   private AtomicInteger autoCommitCount = new AtomicInteger(0);
+  // moving average of the duration of autocommits, including the warming of their searcher
+  private volatile long commitTimeEstimate;
 
   private final SolrCore core;
 
@@ -126,7 +132,7 @@ public final class CommitTracker implements Runnable {
   }
 
   private void _scheduleCommitWithinIfNeeded(long commitWithin) {
-    long ctime = (commitWithin > 0) ? commitWithin : timeUpperBound;
+    long ctime = (commitWithin > 0) ? commitWithin : getEffectiveTimeUpperBound();
 
     if (ctime > 0) {
       _scheduleCommitWithin(ctime);
@@ -277,7 +283,11 @@ public final class CommitTracker implements Runnable {
       // to check the commit count before we had incremented it.)
       autoCommitCount.incrementAndGet();
 
+      long start = System.nanoTime();
       core.getUpdateHandler().commit(command);
+      long commitTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      long estimate = commitTimeEstimate;
+      commitTimeEstimate = estimate == 0 ? commitTime : (3 * estimate + commitTime) / 4;
     } catch (Exception e) {
       log.error("auto commit error...", e);
     } finally {
@@ -309,6 +319,37 @@ public final class CommitTracker implements Runnable {
     return timeUpperBound;
   }
 
+  /**
+   * The delay of time-triggered autocommits: the configured time upper bound, stretched up to the
+   * max adaptive time while autocommits are slow.
+   */
+  long getEffectiveTimeUpperBound() {
+    return adaptiveTime(timeUpperBound, maxAdaptiveTime, commitTimeEstimate);
+  }
+
+  /**
+   * Stretches the time upper bound so that commits taking {@code commitTime} ms use at most about a
+   * fifth of the time, within {@code maxAdaptiveTime}.
+   */
+  static long adaptiveTime(long timeUpperBound, long maxAdaptiveTime, long commitTime) {
+    if (timeUpperBound <= 0 || maxAdaptiveTime <= timeUpperBound) {
+      return timeUpperBound;
+    }
+    long time = Math.max(timeUpperBound, ADAPTIVE_TIME_FACTOR * commitTime);
+    return Math.min(time, maxAdaptiveTime);
+  }
+
+  long getMaxAdaptiveTime() {
+    return maxAdaptiveTime;
+  }
+
+  void setMaxAdaptiveTime(long maxAdaptiveTime) {
+    this.maxAdaptiveTime = maxAdaptiveTime;
+    if (maxAdaptiveTime > timeUpperBound && timeUpperBound > 0) {
+      log.info("{} AutoCommit: maxTime adapts up to {}ms", name, maxAdaptiveTime);
+    }
+  }
+
   int getDocsUpperBound() {
     return docsUpperBound;
   }
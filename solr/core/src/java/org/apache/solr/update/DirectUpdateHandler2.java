@@ -22,8 +22,11 @@ import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.LongAdder;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
@@ -47,7 +50,9 @@ import org.apache.solr.cloud.ZkController;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.cloud.Replica;
 import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.apache.solr.core.SolrConfig.UpdateHandlerInfo;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.core.SolrInfoBean;
@@ -109,6 +114,12 @@ public class DirectUpdateHandler2 extends UpdateHandler
 
   protected boolean commitWithinSoftCommit;
 
+  // opens the searchers of commits in the background, null unless asyncOpenSearcher is configured
+  private final ExecutorService searcherOpener;
+  private final Object searcherOpenLock = new Object();
+  // the background open not started yet, shared by the commits arriving meanwhile
+  private PendingSearcherOpen pendingSearcherOpen; // guarded by searcherOpenLock
+
   /**
    * package access for testing
    *
@@ -148,8 +159,10 @@ public class DirectUpdateHandler2 extends UpdateHandler
             NO_FILE_SIZE_UPPER_BOUND_PLACEHOLDER,
             true,
             true);
+    softCommitTracker.setMaxAdaptiveTime(updateHandlerInfo.autoSoftCommitMaxAdaptiveTime);
 
     commitWithinSoftCommit = updateHandlerInfo.commitWithinSoftCommit;
+    searcherOpener = createSearcherOpener(updateHandlerInfo);
 
     ZkController zkController = core.getCoreContainer().getZkController();
     if (zkController != null
@@ -191,8 +204,10 @@ public class DirectUpdateHandler2 extends UpdateHandler
             NO_FILE_SIZE_UPPER_BOUND_PLACEHOLDER,
             updateHandlerInfo.openSearcher,
             true);
+    softCommitTracker.setMaxAdaptiveTime(updateHandlerInfo.autoSoftCommitMaxAdaptiveTime);
 
     commitWithinSoftCommit = updateHandlerInfo.commitWithinSoftCommit;
+    searcherOpener = createSearcherOpener(updateHandlerInfo);
 
     if (ulog != null) {
       // If we are reusing the existing update log, inform the log that its update handler has
@@ -726,6 +741,12 @@ public class DirectUpdateHandler2 extends UpdateHandler
     Future<Void>[] waitSearcher =
         cmd.waitSearcher ? (Future<Void>[]) Array.newInstance(Future.class, 1) : null;
 
+    // open the searcher outside the locks, only reopening the realtime searcher under them
+    boolean openInBackground =
+        searcherOpener != null
+            && (cmd.softCommit || cmd.openSearcher)
+            && !cmd.isClosingOnCommit();
+
     boolean error = true;
     try {
       // only allow one hard commit to proceed at once
@@ -792,14 +813,18 @@ public class DirectUpdateHandler2 extends UpdateHandler
         // ulog.preSoftCommit();
         synchronized (solrCoreState.getUpdateLock()) {
           if (ulog != null) ulog.preSoftCommit(cmd);
-          core.getSearcher(true, false, waitSearcher, true);
+          if (openInBackground) {
+            core.openNewSearcher(true, true).decref();
+          } else {
+            core.getSearcher(true, false, waitSearcher, true);
+          }
           if (ulog != null) ulog.postSoftCommit(cmd);
         }
         callPostSoftCommitCallbacks();
       } else {
         synchronized (solrCoreState.getUpdateLock()) {
           if (ulog != null) ulog.preSoftCommit(cmd);
-          if (cmd.openSearcher) {
+          if (cmd.openSearcher && !openInBackground) {
             core.getSearcher(true, false, waitSearcher);
           } else if (!cmd.isClosingOnCommit()) {
             // force open a new realtime searcher so realtime-get and versioning code can see the
@@ -813,6 +838,13 @@ public class DirectUpdateHandler2 extends UpdateHandler
         // also been opened
       }
 
+      if (openInBackground) {
+        Future<Void> registered = openSearcherInBackground(cmd.softCommit);
+        if (waitSearcher != null) {
+          waitSearcher[0] = registered;
+        }
+      }
+
       // reset commit tracking
 
       if (cmd.softCommit) {
@@ -849,6 +881,77 @@ public class DirectUpdateHandler2 extends UpdateHandler
     }
   }
 
+  private static ExecutorService createSearcherOpener(UpdateHandlerInfo updateHandlerInfo) {
+    if (!updateHandlerInfo.asyncOpenSearcher) {
+      return null;
+    }
+    return ExecutorUtil.newMDCAwareSingleThreadExecutor(
+        new SolrNamedThreadFactory("asyncSearcherOpener"));
+  }
+
+  /**
+   * Opens and registers a new searcher in the background. Commits arriving before the open has
+   * started share it, and an open waits for the warming of its searcher before the next one starts,
+   * so slow warming delays visibility instead of stalling commits and updates.
+   *
+   * @return a future completed once the new searcher is registered
+   */
+  private Future<Void> openSearcherInBackground(boolean updateHandlerReopens) {
+    synchronized (searcherOpenLock) {
+      PendingSearcherOpen pending = pendingSearcherOpen;
+      if (pending != null) {
+        // a hard commit needs a reader over its new commit point
+        pending.updateHandlerReopens &= updateHandlerReopens;
+        return pending.registered;
+      }
+      pending = new PendingSearcherOpen(updateHandlerReopens);
+      try {
+        searcherOpener.execute(this::openPendingSearcher);
+      } catch (RejectedExecutionException e) {
+        pending.registered.completeExceptionally(e);
+        return pending.registered;
+      }
+      pendingSearcherOpen = pending;
+      return pending.registered;
+    }
+  }
+
+  private void openPendingSearcher() {
+    PendingSearcherOpen pending;
+    synchronized (searcherOpenLock) {
+      // commits from now on need a newer searcher than this one
+      pending = pendingSearcherOpen;
+      pendingSearcherOpen = null;
+    }
+    if (pending == null) {
+      return; // dropped by close()
+    }
+    try {
+      @SuppressWarnings("unchecked")
+      Future<Void>[] waitSearcher = (Future<Void>[]) Array.newInstance(Future.class, 1);
+      core.getSearcher(true, false, waitSearcher, pending.updateHandlerReopens);
+      if (waitSearcher[0] != null) {
+        waitSearcher[0].get();
+      }
+      pending.registered.complete(null);
+    } catch (Exception e) {
+      if (e instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+      }
+      log.error("Exception opening searcher in the background", e);
+      pending.registered.completeExceptionally(e);
+    }
+  }
+
+  private static class PendingSearcherOpen {
+    final CompletableFuture<Void> registered = new CompletableFuture<>();
+    boolean updateHandlerReopens;
+
+    PendingSearcherOpen(boolean updateHandlerReopens) {
+      this.updateHandlerReopens = updateHandlerReopens;
+    }
+  }
+
   /**
    * Determines whether the commit command should effectively trigger a commit on the index writer.
    * This method is called with the commit lock and is the last step before effectively calling
@@ -914,6 +1017,17 @@ public class DirectUpdateHandler2 extends UpdateHandler
 
     commitTracker.close();
     softCommitTracker.close();
+    if (searcherOpener != null) {
+      synchronized (searcherOpenLock) {
+        // the core is closing; don't open a searcher that was not started yet
+        if (pendingSearcherOpen != null) {
+          pendingSearcherOpen.registered.completeExceptionally(
+              new SolrCoreState.CoreIsClosedException());
+          pendingSearcherOpen = null;
+        }
+      }
+      ExecutorUtil.shutdownAndAwaitTermination(searcherOpener);
+    }
 
     numDocsPending.reset();
     try {
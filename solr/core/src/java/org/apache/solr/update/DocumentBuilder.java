@@ -16,24 +16,38 @@
  */
 package org.apache.solr.update;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.solr.common.SolrDocumentBase;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.SolrInputField;
+import org.apache.solr.common.util.ByteArrayUtf8CharSequence;
 import org.apache.solr.schema.CopyField;
 import org.apache.solr.schema.DenseVectorField;
 import org.apache.solr.schema.FieldType;
 import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.IntPointField;
+import org.apache.solr.schema.LongPointField;
 import org.apache.solr.schema.SchemaField;
+import org.apache.solr.schema.StrField;
 
 /** Builds a Lucene {@link Document} from a {@link SolrInputDocument}. */
 public class DocumentBuilder {
@@ -42,6 +56,9 @@ public class DocumentBuilder {
   static int MIN_LENGTH_TO_MOVE_LAST =
       Integer.getInteger("solr.docBuilder.minLengthToMoveLast", 4 * 1024); // internal setting
   static int MAX_VALUES_AS_STRING_LENGTH = 256;
+  // whether documents built for indexing reuse the Lucene fields of the previous ones
+  static boolean REUSE_FIELDS =
+      !Boolean.getBoolean("solr.docBuilder.disableFieldReuse"); // internal setting
 
   /**
    * Add a field value to a given document.
@@ -50,20 +67,27 @@ public class DocumentBuilder {
    * @param field The schema field object for the field
    * @param val The value for the field to be added
    * @param forInPlaceUpdate Whether the field is to be added for in-place update. If true, only
-   *     numeric docValues based fields are added to the document. This can be true when
+   *     numeric and binary docValues based fields are added to the document. This can be true when
    *     constructing a Lucene document for writing an in-place update, and we don't need presence
    *     of non-updatable fields (non NDV) in such a document.
    */
   private static void addField(
-      Document doc, SchemaField field, Object val, boolean forInPlaceUpdate) {
+      Document doc,
+      SchemaField field,
+      Object val,
+      boolean forInPlaceUpdate,
+      ReusableFields reusableFields) {
     if (val instanceof IndexableField) {
       if (forInPlaceUpdate) {
-        assert val instanceof NumericDocValuesField
-            : "Expected in-place update to be done on" + " NDV fields only.";
+        assert val instanceof NumericDocValuesField || val instanceof BinaryDocValuesField
+            : "Expected in-place update to be done on" + " NDV or BDV fields only.";
       }
       doc.add((IndexableField) val);
       return;
     }
+    if (reusableFields != null && reusableFields.add(doc, field, val)) {
+      return;
+    }
     for (IndexableField f : field.getType().createFields(field, val)) {
       if (f != null) { // null fields are not added
         // HACK: workaround for SOLR-9809
@@ -74,7 +98,7 @@ public class DocumentBuilder {
         // once SOLR-9809 is resolved, we should be able to replace this conditional with...
         //    assert f instanceof NumericDocValuesField
         if (forInPlaceUpdate) {
-          if (f instanceof NumericDocValuesField) {
+          if (f instanceof NumericDocValuesField || f instanceof BinaryDocValuesField) {
             doc.add(f);
           }
         } else {
@@ -125,6 +149,26 @@ public class DocumentBuilder {
       IndexSchema schema,
       boolean forInPlaceUpdate,
       boolean ignoreNestedDocs) {
+    return toDocument(doc, schema, forInPlaceUpdate, ignoreNestedDocs, false);
+  }
+
+  /**
+   * Convert a SolrInputDocument to a lucene Document, optionally reusing the field instances of
+   * previous documents built by the same thread.
+   *
+   * <p>When {@code reuseFields} is true, the values of single valued {@link IntPointField}, {@link
+   * LongPointField} and {@link StrField} fields are set into fields kept per thread rather than
+   * into new ones. The returned document is then only valid until the next call to this method by
+   * the same thread with {@code reuseFields}, so it must be handed to the IndexWriter right away.
+   *
+   * @see #toDocument(SolrInputDocument, IndexSchema, boolean, boolean)
+   */
+  static Document toDocument(
+      SolrInputDocument doc,
+      IndexSchema schema,
+      boolean forInPlaceUpdate,
+      boolean ignoreNestedDocs,
+      boolean reuseFields) {
     if (!ignoreNestedDocs && doc.hasChildDocuments()) {
       throw unexpectedNestedDocException(schema, forInPlaceUpdate);
     }
@@ -134,6 +178,8 @@ public class DocumentBuilder {
 
     Document out = new Document();
     Set<String> usedFields = new HashSet<>();
+    final ReusableFields reusableFields =
+        reuseFields && !forInPlaceUpdate ? ReusableFields.forDocument(schema) : null;
 
     // Load fields from SolrDocument to Document
     for (SolrInputField field : doc) {
@@ -190,7 +236,9 @@ public class DocumentBuilder {
           Object vectorValue = field.getValue();
           if (vectorValue != null) {
             hasField = true;
-            used = addOriginalField(vectorValue, sfield, forInPlaceUpdate, out, usedFields);
+            used =
+                addOriginalField(
+                    vectorValue, sfield, forInPlaceUpdate, out, usedFields, reusableFields);
 
             // Check if we should copy this field value to any other fields.
             // This could happen whether it is explicit or not.
@@ -204,7 +252,8 @@ public class DocumentBuilder {
                       forInPlaceUpdate,
                       uniqueKeyFieldName,
                       out,
-                      usedFields);
+                      usedFields,
+                      reusableFields);
             }
           }
         } else {
@@ -216,7 +265,8 @@ public class DocumentBuilder {
             }
             hasField = true;
             if (sfield != null) {
-              used = addOriginalField(v, sfield, forInPlaceUpdate, out, usedFields);
+              used =
+                  addOriginalField(v, sfield, forInPlaceUpdate, out, usedFields, reusableFields);
             }
 
             // Check if we should copy this field value to any other fields.
@@ -231,7 +281,8 @@ public class DocumentBuilder {
                       forInPlaceUpdate,
                       uniqueKeyFieldName,
                       out,
-                      usedFields);
+                      usedFields,
+                      reusableFields);
             }
           }
         }
@@ -279,7 +330,7 @@ public class DocumentBuilder {
       for (SchemaField field : schema.getRequiredFields()) {
         if (out.getField(field.getName()) == null) {
           if (field.getDefaultValue() != null) {
-            addField(out, field, field.getDefaultValue(), false);
+            addField(out, field, field.getDefaultValue(), false, null);
           } else {
             String msg = getID(doc, schema) + "missing required field: " + field.getName();
             throw new SolrException(SolrException.ErrorCode.BAD_REQUEST, msg);
@@ -300,8 +351,9 @@ public class DocumentBuilder {
       SchemaField sfield,
       boolean forInPlaceUpdate,
       Document out,
-      Set<String> usedFields) {
-    addField(out, sfield, originalFieldValue, forInPlaceUpdate);
+      Set<String> usedFields,
+      ReusableFields reusableFields) {
+    addField(out, sfield, originalFieldValue, forInPlaceUpdate, reusableFields);
     // record the field as having a value
     usedFields.add(sfield.getName());
     return true;
@@ -315,7 +367,8 @@ public class DocumentBuilder {
       boolean forInPlaceUpdate,
       String uniqueKeyFieldName,
       Document out,
-      Set<String> usedFields) {
+      Set<String> usedFields,
+      ReusableFields reusableFields) {
     boolean used = false;
     for (CopyField cf : copyFields) {
       SchemaField destinationField = cf.getDestination();
@@ -355,7 +408,8 @@ public class DocumentBuilder {
           out,
           destinationField,
           fieldValue,
-          destinationField.getName().equals(uniqueKeyFieldName) ? false : forInPlaceUpdate);
+          destinationField.getName().equals(uniqueKeyFieldName) ? false : forInPlaceUpdate,
+          reusableFields);
       // record the field as having a originalFieldValue
       usedFields.add(destinationField.getName());
       used = true;
@@ -435,4 +489,202 @@ public class DocumentBuilder {
       }
     }
   }
+
+  /**
+   * The Lucene fields a thread sets the values of its documents into, for the fields that support
+   * it. Only used for one schema; a new instance is created when the schema changes.
+   */
+  private static final class ReusableFields {
+    private static final ThreadLocal<ReusableFields> CURRENT = new ThreadLocal<>();
+
+    /** Marks the fields that always get new Lucene fields */
+    private static final Slot NONE =
+        new Slot() {
+          @Override
+          boolean add(Document doc, Object val) {
+            return false;
+          }
+        };
+
+    private final WeakReference<IndexSchema> schema;
+    private final Map<String, Slot> slots = new HashMap<>();
+    private long document;
+
+    private ReusableFields(IndexSchema schema) {
+      this.schema = new WeakReference<>(schema);
+    }
+
+    static ReusableFields forDocument(IndexSchema schema) {
+      ReusableFields fields = CURRENT.get();
+      if (fields == null || fields.schema.get() != schema) {
+        fields = new ReusableFields(schema);
+        CURRENT.set(fields);
+      }
+      fields.document++;
+      return fields;
+    }
+
+    /**
+     * Adds the value to the document with the fields of this thread.
+     *
+     * @return false if the value must be added with new fields instead
+     */
+    boolean add(Document doc, SchemaField field, Object val) {
+      Slot slot = slots.get(field.getName());
+      if (slot == null) {
+        slot = createSlot(field);
+        slots.put(field.getName(), slot);
+      }
+      // a field added twice to the same document (which is invalid) needs distinct instances
+      if (slot.document == document || !slot.add(doc, val)) {
+        return false;
+      }
+      slot.document = document;
+      return true;
+    }
+
+    private static Slot createSlot(SchemaField field) {
+      if (field.multiValued()) {
+        return NONE;
+      }
+      Class<?> type = field.getType().getClass();
+      if (type == StrField.class) {
+        return new StrSlot(field);
+      }
+      if (!field.indexed() && !field.stored() && !field.hasDocValues()) {
+        return NONE;
+      }
+      if (type == IntPointField.class) {
+        return new IntSlot(field);
+      } else if (type == LongPointField.class) {
+        return new LongSlot(field);
+      }
+      return NONE;
+    }
+  }
+
+  /** The fields one schema field is indexed with, see {@link FieldType#createFields} */
+  private abstract static class Slot {
+    /** The last document the fields were added to */
+    long document;
+
+    /** Sets the value into the fields and adds them, returns false if the value isn't supported */
+    abstract boolean add(Document doc, Object val);
+  }
+
+  /** Same fields as {@link StrField#createFields} */
+  private static final class StrSlot extends Slot {
+    private final Field field;
+    private final SortedDocValuesField docValues;
+    private final BytesRefBuilder bytes;
+
+    StrSlot(SchemaField sf) {
+      field = sf.indexed() || sf.stored() ? new Field(sf.getName(), "", sf) : null;
+      if (sf.hasDocValues()) {
+        bytes = new BytesRefBuilder();
+        docValues = new SortedDocValuesField(sf.getName(), bytes.get());
+      } else {
+        bytes = null;
+        docValues = null;
+      }
+    }
+
+    @Override
+    boolean add(Document doc, Object val) {
+      if (field != null) {
+        field.setStringValue(val.toString());
+        doc.add(field);
+      }
+      if (docValues != null) {
+        if (val instanceof ByteArrayUtf8CharSequence utf8) {
+          bytes.copyBytes(utf8.getBuf(), utf8.offset(), utf8.size());
+        } else {
+          bytes.copyChars(val.toString());
+        }
+        docValues.setBytesValue(bytes.get());
+        doc.add(docValues);
+      }
+      return true;
+    }
+  }
+
+  /** Same fields as {@link IntPointField#createFields} for a single valued field */
+  private static final class IntSlot extends Slot {
+    private final IntPointField type;
+    private final IntPoint point;
+    private final NumericDocValuesField docValues;
+    private final StoredField stored;
+
+    IntSlot(SchemaField sf) {
+      type = (IntPointField) sf.getType();
+      point = sf.indexed() ? new IntPoint(sf.getName(), 0) : null;
+      docValues = sf.hasDocValues() ? new NumericDocValuesField(sf.getName(), 0L) : null;
+      stored = sf.stored() ? new StoredField(sf.getName(), 0) : null;
+    }
+
+    @Override
+    boolean add(Document doc, Object val) {
+      if (!(val instanceof Number || val instanceof CharSequence)) {
+        return false;
+      }
+      final int value;
+      if (point != null) {
+        // as IntPointField.createField, which is stricter than toNativeType
+        value = val instanceof Number n ? n.intValue() : Integer.parseInt(val.toString());
+        point.setIntValue(value);
+        doc.add(point);
+      } else {
+        value = (Integer) type.toNativeType(val);
+      }
+      if (docValues != null) {
+        docValues.setLongValue(value);
+        doc.add(docValues);
+      }
+      if (stored != null) {
+        stored.setIntValue(value);
+        doc.add(stored);
+      }
+      return true;
+    }
+  }
+
+  /** Same fields as {@link LongPointField#createFields} for a single valued field */
+  private static final class LongSlot extends Slot {
+    private final LongPointField type;
+    private final LongPoint point;
+    private final NumericDocValuesField docValues;
+    private final StoredField stored;
+
+    LongSlot(SchemaField sf) {
+      type = (LongPointField) sf.getType();
+      point = sf.indexed() ? new LongPoint(sf.getName(), 0L) : null;
+      docValues = sf.hasDocValues() ? new NumericDocValuesField(sf.getName(), 0L) : null;
+      stored = sf.stored() ? new StoredField(sf.getName(), 0L) : null;
+    }
+
+    @Override
+    boolean add(Document doc, Object val) {
+      if (!(val instanceof Number || val instanceof CharSequence)) {
+        return false;
+      }
+      final long value;
+      if (point != null) {
+        // as LongPointField.createField, which is stricter than toNativeType
+        value = val instanceof Number n ? n.longValue() : Long.parseLong(val.toString());
+        point.setLongValue(value);
+        doc.add(point);
+      } else {
+        value = (Long) type.toNativeType(val);
+      }
+      if (docValues != null) {
+        docValues.setLongValue(value);
+        doc.add(docValues);
+      }
+      if (stored != null) {
+        stored.setLongValue(value);
+        doc.add(stored);
+      }
+      return true;
+    }
+  }
 }
@@ -26,10 +26,14 @@ import java.net.SocketTimeoutException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.Future;
 import org.apache.http.NoHttpResponseException;
@@ -67,17 +71,31 @@ public class SolrCmdDistributor implements Closeable {
   private final CompletionService<Object> completionService;
   private final Set<Future<Object>> pending = new HashSet<>();
 
+  // merges adds to replicas with those of concurrent requests, null if disabled
+  private final UpdateCoalescer coalescer;
+  private final List<Map.Entry<Req, CompletableFuture<Void>>> coalesced = new ArrayList<>();
+  // nodes sent other commands through the streaming clients, their adds are then streamed as well
+  // to stay in order
+  private final Set<String> streamedNodes = new HashSet<>();
+
   public SolrCmdDistributor(UpdateShardHandler updateShardHandler) {
     this.clients = new StreamingSolrClients(updateShardHandler);
     this.completionService =
         new ExecutorCompletionService<>(updateShardHandler.getUpdateExecutor());
+    this.coalescer = updateShardHandler.getUpdateCoalescer();
   }
 
   /* For tests only */
   SolrCmdDistributor(StreamingSolrClients clients, int retryPause) {
+    this(clients, retryPause, null);
+  }
+
+  /* For tests only */
+  SolrCmdDistributor(StreamingSolrClients clients, int retryPause, UpdateCoalescer coalescer) {
     this.clients = clients;
     this.retryPause = retryPause;
     completionService = new ExecutorCompletionService<>(clients.getUpdateExecutor());
+    this.coalescer = coalescer;
   }
 
   public void finish() {
@@ -289,9 +307,46 @@ public class SolrCmdDistributor implements Closeable {
       if (future == null) break;
       pending.remove(future);
     }
+
+    waitForCoalesced(null);
+    coalesced.clear();
+
     doRetriesIfNeeded();
   }
 
+  /** Waits for the coalesced adds to the node, or to all nodes if null, recording their errors */
+  private void waitForCoalesced(String nodeUrl) {
+    for (Iterator<Map.Entry<Req, CompletableFuture<Void>>> it = coalesced.iterator();
+        it.hasNext(); ) {
+      Map.Entry<Req, CompletableFuture<Void>> entry = it.next();
+      Req req = entry.getKey();
+      if (nodeUrl != null && !nodeUrl.equals(req.node.getUrl())) {
+        continue;
+      }
+      try {
+        entry.getValue().get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        log.error("Interrupted waiting for coalesced adds", e);
+        break;
+      } catch (ExecutionException e) {
+        log.error("Error when calling {} to {}", req, req.node.getUrl(), e.getCause());
+        SolrError error = new SolrError();
+        error.e = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        if (error.e instanceof SolrException) {
+          error.statusCode = ((SolrException) error.e).code();
+        }
+        error.req = req;
+        errors.add(error);
+        if (!req.shouldRetry(error)) {
+          // only track the error if we are not retrying the request
+          req.trackRequestResult(Integer.MAX_VALUE, false);
+        }
+      }
+      it.remove();
+    }
+  }
+
   void addCommit(UpdateRequest ureq, CommitUpdateCommand cmd) {
     if (cmd == null) return;
     ureq.setAction(
@@ -341,7 +396,11 @@ public class SolrCmdDistributor implements Closeable {
           req.uReq.getParams());
     }
 
-    if (isCommit) {
+    if (coalescer != null
+        && UpdateCoalescer.canCoalesce(req)
+        && !streamedNodes.contains(req.node.getUrl())) {
+      coalesced.add(Map.entry(req, coalescer.submit(req)));
+    } else if (isCommit) {
       // a commit using ConncurrentUpdateSolrServer is not async,
       // so we make it async to prevent commits from happening
       // serially across multiple nodes
@@ -352,6 +411,10 @@ public class SolrCmdDistributor implements Closeable {
                 return null;
               }));
     } else {
+      if (coalescer != null && streamedNodes.add(req.node.getUrl())) {
+        // the adds coalesced so far were submitted before this command, so must be applied first
+        waitForCoalesced(req.node.getUrl());
+      }
       doRequest(req);
     }
   }
@@ -432,11 +495,12 @@ public class SolrCmdDistributor implements Closeable {
     // aggregator node.
     public void trackRequestResult(
         org.eclipse.jetty.client.api.Response resp, InputStream respBody, boolean success) {
+      trackRequestResult(getRfFromResponse(respBody), success);
+    }
 
-      // Returning Integer.MAX_VALUE here means there was no "rf" on the response, therefore we just
+    void trackRequestResult(int rfFromResp, boolean success) {
+      // Integer.MAX_VALUE here means there was no "rf" on the response, therefore we just
       // need to increment our achieved rf if we are a leader, i.e. have a leaderTracker.
-      int rfFromResp = getRfFromResponse(respBody);
-
       if (leaderTracker != null && rfFromResp == Integer.MAX_VALUE) {
         leaderTracker.trackRequestResult(node, success);
       }
@@ -450,16 +514,7 @@ public class SolrCmdDistributor implements Closeable {
       if (inputStream != null) {
         try {
           JavaBinResponseParser brp = new JavaBinResponseParser();
-          NamedList<Object> nl = brp.processResponse(inputStream, null);
-          Object hdr = nl.get("responseHeader");
-          if (hdr != null && hdr instanceof NamedList) {
-            @SuppressWarnings({"unchecked"})
-            NamedList<Object> hdrList = (NamedList<Object>) hdr;
-            Object rfObj = hdrList.get(UpdateRequest.REPFACT);
-            if (rfObj != null && rfObj instanceof Integer) {
-              return (Integer) rfObj;
-            }
-          }
+          return getRfFromResponse(brp.processResponse(inputStream, null));
         } catch (Exception e) {
           log.warn(
               "Failed to parse response from {} during replication factor accounting", node, e);
@@ -467,6 +522,19 @@ public class SolrCmdDistributor implements Closeable {
       }
       return Integer.MAX_VALUE;
     }
+
+    static int getRfFromResponse(NamedList<Object> nl) {
+      Object hdr = nl.get("responseHeader");
+      if (hdr != null && hdr instanceof NamedList) {
+        @SuppressWarnings({"unchecked"})
+        NamedList<Object> hdrList = (NamedList<Object>) hdr;
+        Object rfObj = hdrList.get(UpdateRequest.REPFACT);
+        if (rfObj != null && rfObj instanceof Integer) {
+          return (Integer) rfObj;
+        }
+      }
+      return Integer.MAX_VALUE;
+    }
   }
 
   public static Diagnostics.Callable
@@ -85,6 +85,15 @@ public class TransactionLog implements Closeable {
   protected volatile boolean deleteOnClose = true;
 
   protected AtomicInteger refcount = new AtomicInteger(1);
+  // a position up to which fos is known to be flushed to the channel
+  private volatile long flushedPosition;
+  // serializes channel.force so that concurrent FSYNC requests can share one
+  private final Object syncLock = new Object();
+  // the position up to which the channel was forced, guarded by syncLock
+  private long syncedPosition;
+  // the records of this log as last read by UpdateLog.RecentUpdates, reused while the log doesn't
+  // grow
+  volatile UpdateLog.ReverseScan reverseScan;
   protected Map<String, Integer> globalStringMap = new HashMap<>();
   protected List<String> globalStringList = new ArrayList<>();
 
@@ -557,16 +566,13 @@ public class TransactionLog implements Closeable {
     if (pos < 0) return null;
 
     try {
-      // make sure any unflushed buffer has been flushed
-      synchronized (this) {
-        // TODO: optimize this by keeping track of what we have flushed up to
-        fos.flush();
-        /*
-        System.out.println("###flush to " + fos.size() + " raf.length()=" + raf.length() + " pos="+pos);
-        if (fos.size() != raf.length() || pos >= fos.size() ) {
-          throw new RuntimeException("ERROR" + "###flush to " + fos.size() + " raf.length()=" + raf.length() + " pos="+pos);
+      // make sure any unflushed buffer has been flushed. Records are written whole while holding
+      // the lock, so one starting before the last flushed position is already in the file.
+      if (pos >= flushedPosition) {
+        synchronized (this) {
+          fos.flush();
+          flushedPosition = fos.size();
         }
-        */
       }
 
       DataInputInputStream is = channelInputStreamOpener.open(channel, pos);
@@ -612,15 +618,14 @@ public class TransactionLog implements Closeable {
   public void finish(UpdateLog.SyncLevel syncLevel) {
     if (syncLevel == UpdateLog.SyncLevel.NONE) return;
     try {
+      long flushed;
       synchronized (this) {
         fos.flush();
+        flushed = flushedPosition = fos.size();
       }
 
       if (syncLevel == UpdateLog.SyncLevel.FSYNC) {
-        // Since fsync is outside of synchronized block, we can end up with a partial
-        // last record on power failure (which is OK, and does not represent an error...
-        // we just need to be aware of it when reading).
-        channel.force(true);
+        sync(flushed);
       }
 
     } catch (IOException e) {
@@ -628,6 +633,37 @@ public class TransactionLog implements Closeable {
     }
   }
 
+  /**
+   * Forces the log to disk up to at least the given position. Concurrent callers are group
+   * committed: while one thread forces the channel, the others wait for it, and the next one in
+   * flushes everything written meanwhile before forcing again. A caller whose position was already
+   * covered by someone else's force returns without forcing.
+   */
+  private void sync(long position) throws IOException {
+    synchronized (syncLock) {
+      if (syncedPosition >= position) {
+        return;
+      }
+      long target;
+      synchronized (this) {
+        fos.flush();
+        target = fos.size();
+      }
+      // Since fsync is outside of synchronized block, we can end up with a partial
+      // last record on power failure (which is OK, and does not represent an error...
+      // we just need to be aware of it when reading).
+      channel.force(true);
+      syncedPosition = target;
+    }
+  }
+
+  /** The position up to which the log is known to be forced to disk */
+  long getSyncedPosition() {
+    synchronized (syncLock) {
+      return syncedPosition;
+    }
+  }
+
   @Override
   public void close() {
     try {
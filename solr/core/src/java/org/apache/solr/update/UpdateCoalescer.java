@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.lang.invoke.MethodHandles;
+import java.security.Principal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import org.apache.solr.client.solrj.impl.Http2SolrClient;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Merges the adds that leaders forward to the same replica from concurrent update requests into
+ * fewer, larger requests.
+ *
+ * <p>Adds are queued per replica core and request parameters. At most {@code maxInFlight} requests
+ * are sent to a target at a time: an add that finds a free slot is sent right away, while adds
+ * that arrive while all slots are busy are sent together, up to {@code maxDocs} per request, as
+ * soon as a slot frees up. Batches therefore only form under load, and no delay is added when a
+ * replica keeps up.
+ *
+ * <p>Each add gets its own future, completed when the request that carried it succeeded or failed,
+ * so that errors are reported to, and retried by, the {@link SolrCmdDistributor} that submitted it.
+ * When a replica rejects a request carrying several adds, they are sent again one at a time, so
+ * that one bad document doesn't fail the others and each gets its own error and replication factor.
+ * Replicas ignore the adds of the failed request they had already applied, as their version is not
+ * newer.
+ *
+ * @see UpdateShardHandler#getUpdateCoalescer()
+ */
+public class UpdateCoalescer {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private final Http2SolrClient client;
+  private final ExecutorService executor;
+  private final int maxInFlight;
+  private final int maxDocs;
+  private final Map<String, Target> targets = new ConcurrentHashMap<>();
+
+  public UpdateCoalescer(
+      Http2SolrClient client, ExecutorService executor, int maxInFlight, int maxDocs) {
+    if (maxInFlight <= 0 || maxDocs <= 0) {
+      throw new IllegalArgumentException("maxInFlight and maxDocs must be positive");
+    }
+    this.client = client;
+    this.executor = executor;
+    this.maxInFlight = maxInFlight;
+    this.maxDocs = maxDocs;
+  }
+
+  /** Whether the request is a single add that can be merged with others */
+  static boolean canCoalesce(SolrCmdDistributor.Req req) {
+    return !req.synchronous
+        && req.cmd instanceof AddUpdateCommand
+        && !((AddUpdateCommand) req.cmd).isInPlaceUpdate()
+        && !(req.node instanceof SolrCmdDistributor.ForwardNode)
+        && req.uReq.getDocumentsMap() != null
+        && req.uReq.getDocumentsMap().size() == 1;
+  }
+
+  /**
+   * Queues the add of the request to be sent to its node.
+   *
+   * @return a future completed once the add was sent, exceptionally if the request carrying it
+   *     failed
+   */
+  public CompletableFuture<Void> submit(SolrCmdDistributor.Req req) {
+    assert canCoalesce(req);
+    Pending pending = new Pending(req, new CompletableFuture<>());
+    Target target = targets.computeIfAbsent(key(req), k -> new Target(k, req));
+    List<Pending> batch;
+    synchronized (target) {
+      target.queue.add(pending);
+      batch = target.takeBatch();
+    }
+    if (batch != null) {
+      send(target, batch);
+    }
+    return pending.future;
+  }
+
+  private static String key(SolrCmdDistributor.Req req) {
+    Principal principal = req.uReq.getUserPrincipal();
+    return req.node.getUrl()
+        + '?'
+        + req.uReq.getParams()
+        + (principal == null ? "" : "#" + principal.getName());
+  }
+
+  private void send(Target target, List<Pending> batch) {
+    try {
+      executor.execute(() -> sendBatches(target, batch));
+    } catch (RejectedExecutionException e) {
+      // shutting down, fail what is queued as nothing may be left to send it
+      List<Pending> failed = new ArrayList<>(batch);
+      synchronized (target) {
+        target.inFlight--;
+        failed.addAll(target.queue);
+        target.queue.clear();
+      }
+      for (Pending pending : failed) {
+        pending.future.completeExceptionally(e);
+      }
+    }
+  }
+
+  /** Sends the batch, then the adds queued meanwhile while there are any */
+  private void sendBatches(Target target, List<Pending> batch) {
+    while (batch != null) {
+      sendBatch(target, batch);
+      synchronized (target) {
+        target.inFlight--;
+        batch = target.takeBatch();
+        if (batch == null && target.inFlight == 0) {
+          // idle, adds arriving meanwhile start a new target
+          targets.remove(target.key, target);
+        }
+      }
+    }
+  }
+
+  private void sendBatch(Target target, List<Pending> batch) {
+    UpdateRequest uReq = new UpdateRequest();
+    uReq.setParams(new ModifiableSolrParams(target.params));
+    uReq.setUserPrincipal(target.principal);
+    for (Pending pending : batch) {
+      for (Map.Entry<SolrInputDocument, Map<String, Object>> doc :
+          pending.req.uReq.getDocumentsMap().entrySet()) {
+        Map<String, Object> docParams = doc.getValue();
+        uReq.add(
+            doc.getKey(),
+            (Integer) docParams.get(UpdateRequest.COMMIT_WITHIN),
+            (Boolean) docParams.get(UpdateRequest.OVERWRITE));
+      }
+    }
+
+    int rf;
+    try {
+      UpdateResponse rsp = client.requestWithBaseUrl(target.baseUrl, target.core, uReq);
+      rf = SolrCmdDistributor.Req.getRfFromResponse(rsp.getResponse());
+    } catch (Exception e) {
+      if (batch.size() > 1 && e instanceof SolrException) {
+        // the replica rejected the request, maybe because of a single add
+        if (log.isDebugEnabled()) {
+          log.debug(
+              "Error sending {} coalesced adds to {}, sending them one at a time",
+              batch.size(),
+              target.baseUrl,
+              e);
+        }
+        for (Pending pending : batch) {
+          sendBatch(target, List.of(pending));
+        }
+        return;
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Error sending {} coalesced adds to {}", batch.size(), target.baseUrl, e);
+      }
+      for (Pending pending : batch) {
+        pending.future.completeExceptionally(e);
+      }
+      return;
+    }
+    for (Pending pending : batch) {
+      pending.req.trackRequestResult(rf, true);
+      pending.future.complete(null);
+    }
+  }
+
+  private record Pending(SolrCmdDistributor.Req req, CompletableFuture<Void> future) {}
+
+  /** The adds queued for one core, sharing the same request parameters */
+  private final class Target {
+    final String key;
+    final String baseUrl;
+    final String core;
+    final ModifiableSolrParams params;
+    final Principal principal;
+    final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    int inFlight;
+
+    Target(String key, SolrCmdDistributor.Req req) {
+      this.key = key;
+      this.baseUrl = req.node.getBaseUrl();
+      this.core = req.node.getCoreName();
+      this.params = new ModifiableSolrParams(req.uReq.getParams());
+      this.principal = req.uReq.getUserPrincipal();
+    }
+
+    /** Takes the next batch if a slot is free, must be called while synchronized on the target */
+    List<Pending> takeBatch() {
+      if (queue.isEmpty() || inFlight >= maxInFlight) {
+        return null;
+      }
+      List<Pending> batch = new ArrayList<>(Math.min(queue.size(), maxDocs));
+      while (!queue.isEmpty() && batch.size() < maxDocs) {
+        batch.add(queue.poll());
+      }
+      inFlight++;
+      return batch;
+    }
+  }
+}
@@ -45,12 +45,12 @@ import java.util.ListIterator;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.Future;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -211,9 +211,14 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
   protected Deque<TransactionLog> newestLogsOnStartup = new ArrayDeque<>();
   protected int numOldRecords; // number of records in the recent logs
 
-  protected Map<BytesRef, LogPtr> map = new HashMap<>();
-  protected Map<BytesRef, LogPtr> prevMap; // used while committing/reopening is happening
-  protected Map<BytesRef, LogPtr> prevMap2; // used while committing/reopening is happening
+  // The maps are only modified or replaced while synchronized on this UpdateLog, but they are
+  // concurrent and volatile so that version lookups can read them without taking the lock.
+  // See peekEntry for the order in which they must be read.
+  protected volatile Map<BytesRef, LogPtr> map = new ConcurrentHashMap<>();
+  // used while committing/reopening is happening
+  protected volatile Map<BytesRef, LogPtr> prevMap;
+  // used while committing/reopening is happening
+  protected volatile Map<BytesRef, LogPtr> prevMap2;
   // the transaction log used to look up entries found in prevMap
   protected TransactionLog prevMapLog;
   // the transaction log used to look up entries found in prevMap2
@@ -985,7 +990,7 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
     prevMap = map;
     prevMapLog = tlog;
 
-    map = new HashMap<>();
+    map = new ConcurrentHashMap<>();
   }
 
   private void clearOldMaps() {
@@ -1064,7 +1069,7 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
       // any added documents will make it into this commit or not.
       // But we do know that any updates already added will definitely
       // show up in the latest reader after the commit succeeds.
-      map = new HashMap<>();
+      map = new ConcurrentHashMap<>();
 
       if (debug) {
         log.debug(
@@ -1235,7 +1240,36 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
     return null;
   }
 
+  /**
+   * Finds the latest entry of the id in the maps without locking. This is enough to know the version
+   * of the entry, or that the id is not in the maps, but not which log the entry is in.
+   *
+   * <p>The maps are read newest first, while {@link #newMap()} shifts them oldest first, so an
+   * entry added before this call can't be missed because the maps are rotated concurrently.
+   */
+  private LogPtr peekEntry(BytesRef indexedId) {
+    LogPtr entry = map.get(indexedId);
+    if (entry == null) {
+      Map<BytesRef, LogPtr> prev = prevMap;
+      if (prev != null) {
+        entry = prev.get(indexedId);
+      }
+    }
+    if (entry == null) {
+      Map<BytesRef, LogPtr> prev2 = prevMap2;
+      if (prev2 != null) {
+        entry = prev2.get(indexedId);
+      }
+    }
+    return entry;
+  }
+
   public Object lookup(BytesRef indexedId) {
+    // most ids aren't in the maps, only lock to find and pin the log of those that are
+    if (peekEntry(indexedId) == null) {
+      return null;
+    }
+
     LogPtr entry;
     TransactionLog lookupLog;
 
@@ -1280,31 +1314,7 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
   // that have already grabbed higher version numbers.  Higher level coordination or
   // synchronization is needed for stronger guarantees (as VersionUpdateProcessor does).
   public Long lookupVersion(BytesRef indexedId) {
-    LogPtr entry;
-    TransactionLog lookupLog;
-
-    synchronized (this) {
-      entry = map.get(indexedId);
-      lookupLog = tlog; // something found in "map" will always be in "tlog"
-      // SolrCore.verbose("TLOG: lookup ver: for id ",indexedId.utf8ToString(),"in
-      // map",System.identityHashCode(map),"got",entry,"lookupLog=",lookupLog);
-      if (entry == null && prevMap != null) {
-        entry = prevMap.get(indexedId);
-        // something found in prevMap will always be found in prevMapLog (which could be tlog or
-        // prevTlog)
-        lookupLog = prevMapLog;
-        // SolrCore.verbose("TLOG: lookup ver: for id ",indexedId.utf8ToString(),"in
-        // prevMap",System.identityHashCode(map),"got",entry,"lookupLog=",lookupLog);
-      }
-      if (entry == null && prevMap2 != null) {
-        entry = prevMap2.get(indexedId);
-        // something found in prevMap2 will always be found in prevMapLog2 (which could be tlog or
-        // prevTlog)
-        lookupLog = prevMapLog2;
-        // SolrCore.verbose("TLOG: lookup ver: for id ",indexedId.utf8ToString(),"in
-        // prevMap2",System.identityHashCode(map),"got",entry,"lookupLog=",lookupLog);
-      }
-    }
+    LogPtr entry = peekEntry(indexedId);
 
     if (entry != null) {
       return entry.version;
@@ -1676,6 +1686,53 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
     }
   }
 
+  /**
+   * A record of a log as read by {@link RecentUpdates}. The update is null for commits, which are
+   * counted but not returned.
+   */
+  record ScannedRecord(int oper, long version, Update update, byte[] deleteId) {
+    static final ScannedRecord UNREADABLE = new ScannedRecord(-1, 0, null, null);
+  }
+
+  /**
+   * The records of a log read backwards, newest first, while the log had the given size. {@code
+   * complete} is true if all the records of the log were read.
+   */
+  record ReverseScan(long logSize, boolean complete, List<ScannedRecord> records) {}
+
+  /**
+   * Waits until there are no pending replay tasks left, as notified by {@link #replayTaskDone}.
+   *
+   * @throws SolrException if some are still pending after the timeout, or if interrupted
+   */
+  static void waitForReplayTasks(AtomicInteger pendingTasks, long timeoutMs) {
+    TimeOut timeOut = new TimeOut(timeoutMs, TimeUnit.MILLISECONDS, TimeSource.NANO_TIME);
+    synchronized (pendingTasks) {
+      while (pendingTasks.get() != 0) {
+        long timeLeft = timeOut.timeLeft(TimeUnit.MILLISECONDS);
+        if (timeLeft <= 0) {
+          throw new SolrException(
+              ErrorCode.SERVER_ERROR, "Timeout waiting for replay updates finish");
+        }
+        try {
+          pendingTasks.wait(timeLeft);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new SolrException(ErrorCode.SERVER_ERROR, e);
+        }
+      }
+    }
+  }
+
+  /** Counts a replay task as done, waking up the waiters if it was the last pending one. */
+  static void replayTaskDone(AtomicInteger pendingTasks) {
+    if (pendingTasks.decrementAndGet() == 0) {
+      synchronized (pendingTasks) {
+        pendingTasks.notifyAll();
+      }
+    }
+  }
+
   public class RecentUpdates implements Closeable {
     final Deque<TransactionLog> logList; // newest first
     List<List<Update>> updateList;
@@ -1771,79 +1828,130 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
       for (TransactionLog oldLog : logList) {
         List<Update> updatesForLog = new ArrayList<>();
 
-        TransactionLog.ReverseReader reader = null;
-        try {
-          reader = oldLog.getReverseReader();
-
-          while (numUpdates < numRecordsToKeep) {
-            Object o = null;
-            try {
-              o = reader.next();
-              if (o == null) break;
-
-              // should currently be a List<Oper,Ver,Doc/Id>
-              List<?> entry = (List<?>) o;
-
-              // TODO: refactor this out so we get common error handling
-              int opAndFlags = (Integer) entry.get(UpdateLog.FLAGS_IDX);
-              int oper = opAndFlags & UpdateLog.OPERATION_MASK;
-              long version = (Long) entry.get(UpdateLog.VERSION_IDX);
-
-              if (oldLog.isBuffer) bufferUpdates.add(version);
-
-              switch (oper) {
-                case UpdateLog.ADD:
-                case UpdateLog.UPDATE_INPLACE:
-                case UpdateLog.DELETE:
-                case UpdateLog.DELETE_BY_QUERY:
-                  Update update = new Update();
-                  update.log = oldLog;
-                  update.pointer = reader.position();
-                  update.version = version;
-
-                  if (oper == UpdateLog.UPDATE_INPLACE) {
-                    if (entry.size() == 5) {
-                      update.previousVersion = (Long) entry.get(UpdateLog.PREV_VERSION_IDX);
-                    }
-                  }
-                  updatesForLog.add(update);
-                  updates.put(version, update);
+        for (ScannedRecord record : scan(oldLog, numRecordsToKeep - numUpdates)) {
+          numUpdates++;
+          if (record == ScannedRecord.UNREADABLE) continue;
 
-                  if (oper == UpdateLog.DELETE_BY_QUERY) {
-                    deleteByQueryList.add(update);
-                  } else if (oper == UpdateLog.DELETE) {
-                    deleteList.add(new DeleteUpdate(version, (byte[]) entry.get(2)));
-                  }
+          if (oldLog.isBuffer) bufferUpdates.add(record.version());
 
-                  break;
+          Update update = record.update();
+          if (update == null) continue; // a commit
 
-                case UpdateLog.COMMIT:
-                  break;
-                default:
-                  throw new SolrException(
-                      SolrException.ErrorCode.SERVER_ERROR, "Unknown Operation! " + oper);
-              }
-            } catch (ClassCastException cl) {
-              log.warn("Unexpected log entry or corrupt log.  Entry={}", o, cl);
-              // would be caused by a corrupt transaction log
-            } catch (Exception ex) {
-              log.warn("Exception reverse reading log", ex);
+          updatesForLog.add(update);
+          updates.put(update.version, update);
+
+          if (record.oper() == UpdateLog.DELETE_BY_QUERY) {
+            deleteByQueryList.add(update);
+          } else if (record.oper() == UpdateLog.DELETE) {
+            deleteList.add(new DeleteUpdate(update.version, record.deleteId()));
+          }
+        }
+
+        updateList.add(updatesForLog);
+      }
+    }
+
+    /**
+     * Reads up to {@code limit} records of the log backwards, newest first. The result is kept on
+     * the log and reused until the log grows, so that repeated calls on old logs (e.g. by PeerSync
+     * and getVersions) don't read them again. Only the records within the limit are kept, so that
+     * the logs hold no more than {@link #numRecordsToKeep} records in all.
+     */
+    private List<ScannedRecord> scan(TransactionLog oldLog, int limit) {
+      if (limit <= 0) {
+        oldLog.reverseScan = null; // newer logs hold all the recent updates
+        return List.of();
+      }
+
+      long logSize = oldLog.getLogSizeFromStream();
+      ReverseScan cached = oldLog.reverseScan;
+      if (cached != null
+          && cached.logSize() == logSize
+          && (cached.complete() || cached.records().size() >= limit)) {
+        List<ScannedRecord> records = cached.records();
+        if (records.size() > limit) {
+          // newer logs took part of the window since this scan
+          records = List.copyOf(records.subList(0, limit));
+          oldLog.reverseScan = new ReverseScan(logSize, false, records);
+        }
+        return records;
+      }
+
+      List<ScannedRecord> records = new ArrayList<>();
+      boolean complete = false;
+      boolean failed = false;
+      TransactionLog.ReverseReader reader = null;
+      try {
+        reader = oldLog.getReverseReader();
+
+        while (records.size() < limit) {
+          Object o = null;
+          try {
+            o = reader.next();
+            if (o == null) {
+              complete = true;
               break;
             }
 
-            numUpdates++;
-          }
+            // should currently be a List<Oper,Ver,Doc/Id>
+            List<?> entry = (List<?>) o;
 
-        } catch (IOException | AssertionError e) {
-          // catch AssertionError to handle certain test failures correctly failure to read a log
-          // record isn't fatal
-          log.error("Exception reading versions from log", e);
-        } finally {
-          if (reader != null) reader.close();
+            // TODO: refactor this out so we get common error handling
+            int opAndFlags = (Integer) entry.get(UpdateLog.FLAGS_IDX);
+            int oper = opAndFlags & UpdateLog.OPERATION_MASK;
+            long version = (Long) entry.get(UpdateLog.VERSION_IDX);
+
+            switch (oper) {
+              case UpdateLog.ADD:
+              case UpdateLog.UPDATE_INPLACE:
+              case UpdateLog.DELETE:
+              case UpdateLog.DELETE_BY_QUERY:
+                Update update = new Update();
+                update.log = oldLog;
+                update.pointer = reader.position();
+                update.version = version;
+
+                if (oper == UpdateLog.UPDATE_INPLACE) {
+                  if (entry.size() == 5) {
+                    update.previousVersion = (Long) entry.get(UpdateLog.PREV_VERSION_IDX);
+                  }
+                }
+                byte[] deleteId = oper == UpdateLog.DELETE ? (byte[]) entry.get(2) : null;
+                records.add(new ScannedRecord(oper, version, update, deleteId));
+                break;
+
+              case UpdateLog.COMMIT:
+                records.add(new ScannedRecord(oper, version, null, null));
+                break;
+              default:
+                throw new SolrException(
+                    SolrException.ErrorCode.SERVER_ERROR, "Unknown Operation! " + oper);
+            }
+          } catch (ClassCastException cl) {
+            log.warn("Unexpected log entry or corrupt log.  Entry={}", o, cl);
+            // would be caused by a corrupt transaction log
+            records.add(ScannedRecord.UNREADABLE);
+            failed = true;
+          } catch (Exception ex) {
+            log.warn("Exception reverse reading log", ex);
+            failed = true;
+            break;
+          }
         }
 
-        updateList.add(updatesForLog);
+      } catch (IOException | AssertionError e) {
+        // catch AssertionError to handle certain test failures correctly failure to read a log
+        // record isn't fatal
+        log.error("Exception reading versions from log", e);
+        failed = true;
+      } finally {
+        if (reader != null) reader.close();
       }
+
+      if (!failed) {
+        oldLog.reverseScan = new ReverseScan(logSize, complete, List.copyOf(records));
+      }
+      return records;
     }
 
     @Override
@@ -2308,21 +2416,8 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
     }
 
     private void waitForAllUpdatesGetExecuted(AtomicInteger pendingTasks) {
-      TimeOut timeOut =
-          new TimeOut(Integer.MAX_VALUE, TimeUnit.MILLISECONDS, TimeSource.CURRENT_TIME);
-      try {
-        timeOut.waitFor(
-            "Timeout waiting for replay updates finish",
-            () -> {
-              // TODO handle the case when there are no progress after a long time
-              return pendingTasks.get() == 0;
-            });
-      } catch (TimeoutException e) {
-        throw new SolrException(ErrorCode.SERVER_ERROR, e);
-      } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
-        throw new SolrException(ErrorCode.SERVER_ERROR, e);
-      }
+      // TODO handle the case when there are no progress after a long time
+      waitForReplayTasks(pendingTasks, Integer.MAX_VALUE);
     }
 
     private BytesRef getIndexedId(UpdateCommand cmd) {
@@ -2344,29 +2439,34 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
       assert cmd instanceof AddUpdateCommand || cmd instanceof DeleteUpdateCommand;
 
       if (executor != null) {
-        executor.execute(
-            getIndexedId(cmd),
-            () -> {
-              try {
-                // fail fast
-                if (exceptionHolder.get() != null) return;
-                invokeCmdOnProc(cmd, procTl.get());
-              } catch (IOException e) {
-                recoveryInfo.errors.incrementAndGet();
-                loglog.warn("REPLAY_ERR: IOException reading log", e);
-                // could be caused by an incomplete flush if recovering from log
-              } catch (SolrException e) {
-                if (e.code() == ErrorCode.SERVICE_UNAVAILABLE.code) {
-                  exceptionHolder.compareAndSet(null, e);
-                  return;
-                }
-                recoveryInfo.errors.incrementAndGet();
-                loglog.warn("REPLAY_ERR: SolrException reading log", e);
-              } finally {
-                pendingTasks.decrementAndGet();
-              }
-            });
         pendingTasks.incrementAndGet();
+        try {
+          executor.execute(
+              getIndexedId(cmd),
+              () -> {
+                try {
+                  // fail fast
+                  if (exceptionHolder.get() != null) return;
+                  invokeCmdOnProc(cmd, procTl.get());
+                } catch (IOException e) {
+                  recoveryInfo.errors.incrementAndGet();
+                  loglog.warn("REPLAY_ERR: IOException reading log", e);
+                  // could be caused by an incomplete flush if recovering from log
+                } catch (SolrException e) {
+                  if (e.code() == ErrorCode.SERVICE_UNAVAILABLE.code) {
+                    exceptionHolder.compareAndSet(null, e);
+                    return;
+                  }
+                  recoveryInfo.errors.incrementAndGet();
+                  loglog.warn("REPLAY_ERR: SolrException reading log", e);
+                } finally {
+                  replayTaskDone(pendingTasks);
+                }
+              });
+        } catch (RuntimeException e) {
+          replayTaskDone(pendingTasks);
+          throw e;
+        }
       } else {
         try {
           invokeCmdOnProc(cmd, procTl.get());
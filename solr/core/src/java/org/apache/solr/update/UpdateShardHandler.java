@@ -87,6 +87,14 @@ public class UpdateShardHandler implements SolrInfoBean {
 
   private SolrMetricsContext solrMetricsContext;
 
+  // merges the adds forwarded to replicas by concurrent requests, disabled by default since it
+  // trades the replica's indexing parallelism for fewer requests
+  private final int coalesceMaxInFlight =
+      Integer.getInteger("solr.cloud.replication.coalesceMaxInFlight", 0);
+  private final int coalesceMaxDocs =
+      Integer.getInteger("solr.cloud.replication.coalesceMaxDocs", 1000);
+  private final UpdateCoalescer updateCoalescer;
+
   private int socketTimeout = HttpClientUtil.DEFAULT_SO_TIMEOUT;
   private int connectionTimeout = HttpClientUtil.DEFAULT_CONNECT_TIMEOUT;
 
@@ -140,6 +148,12 @@ public class UpdateShardHandler implements SolrInfoBean {
     updateOnlyClient = updateOnlyClientBuilder.build();
     updateOnlyClient.addListenerFactory(trackHttpSolrMetrics);
 
+    updateCoalescer =
+        coalesceMaxInFlight > 0
+            ? new UpdateCoalescer(
+                updateOnlyClient, updateExecutor, coalesceMaxInFlight, coalesceMaxDocs)
+            : null;
+
     recoveryOnlyClient = recoveryOnlyClientBuilder.build();
     recoveryOnlyClient.addListenerFactory(trackHttpSolrMetrics);
 
@@ -270,6 +284,14 @@ public class UpdateShardHandler implements SolrInfoBean {
     return updateExecutor;
   }
 
+  /**
+   * @return the coalescer of adds forwarded to replicas, or null if {@code
+   *     solr.cloud.replication.coalesceMaxInFlight} isn't set
+   */
+  public UpdateCoalescer getUpdateCoalescer() {
+    return updateCoalescer;
+  }
+
   public PoolingHttpClientConnectionManager getDefaultConnectionManager() {
     return defaultConnectionManager;
   }
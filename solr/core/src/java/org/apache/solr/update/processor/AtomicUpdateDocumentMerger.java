@@ -52,6 +52,7 @@ import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.handler.component.RealTimeGetComponent;
 import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.schema.BinaryField;
 import org.apache.solr.schema.CopyField;
 import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.NumericValueFieldType;
@@ -214,13 +215,18 @@ public class AtomicUpdateDocumentMerger {
    * Given a schema field, return whether or not such a field is supported for an in-place update.
    * Note: If an update command has updates to only supported fields (and _version_ is also
    * supported), only then is such an update command executed as an in-place update.
+   *
+   * <p>Only numeric and binary docValues can be updated by Lucene, so sorted (e.g. string) and
+   * multi-valued docValues fields are not supported. Subclasses of {@link BinaryField} are not
+   * supported either since they may use other docValues.
    */
   public static boolean isSupportedFieldForInPlaceUpdate(SchemaField schemaField) {
     return !(schemaField.indexed()
         || schemaField.stored()
         || !schemaField.hasDocValues()
         || schemaField.multiValued()
-        || !(schemaField.getType() instanceof NumericValueFieldType));
+        || !(schemaField.getType() instanceof NumericValueFieldType
+            || schemaField.getType().getClass() == BinaryField.class));
   }
 
   /**
@@ -302,6 +308,11 @@ public class AtomicUpdateDocumentMerger {
       if (!isSupportedFieldForInPlaceUpdate(schemaField)) {
         return Collections.emptySet();
       }
+      // only numbers can be incremented
+      if (!(schemaField.getType() instanceof NumericValueFieldType)
+          && ((Map<String, Object>) sdoc.getFieldValue(fieldName)).containsKey("inc")) {
+        return Collections.emptySet();
+      }
 
       // if this field has copy target which is not supported for in place, then empty
       for (CopyField copyField : schema.getCopyFieldsList(fieldName)) {
@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update.processor;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.UpdateParams;
+import org.apache.solr.request.SolrRequestInfo;
+import org.apache.solr.update.AddUpdateCommand;
+import org.apache.solr.update.CommitUpdateCommand;
+import org.apache.solr.update.DeleteUpdateCommand;
+import org.apache.solr.update.MergeIndexesCommand;
+import org.apache.solr.update.RollbackUpdateCommand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the adds of a request through the processor chain on another thread, so that the request
+ * thread can parse the next documents meanwhile.
+ *
+ * <p>Adds are queued, up to {@code queueSize} of them, and processed in order by a single worker.
+ * The chain itself is not thread safe, so any other command first waits for the queued adds to be
+ * processed and then runs on the calling thread. When an add fails, the adds queued after it are
+ * dropped and the error is thrown by the next call, as if the add had failed synchronously. Adds
+ * still queued when the processor is closed, such as those parsed before a parsing error, are
+ * processed before closing returns.
+ *
+ * <p>Processors such as {@link TimestampUpdateProcessorFactory} depend on the {@link
+ * SolrRequestInfo} of the request, so the executor must propagate it to the worker, as the
+ * MDC-aware update executor does.
+ *
+ * @see UpdateParams#PIPELINE
+ */
+public class PipelinedUpdateProcessor extends UpdateRequestProcessor {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private final ExecutorService executor;
+  private final int queueSize;
+
+  // all guarded by this
+  private final ArrayDeque<AddUpdateCommand> queue = new ArrayDeque<>();
+  private boolean processing;
+  private boolean workerRunning;
+  private boolean closed;
+  private Throwable failure;
+  private boolean failureThrown;
+
+  public PipelinedUpdateProcessor(
+      UpdateRequestProcessor next, ExecutorService executor, int queueSize) {
+    super(next);
+    if (queueSize <= 0) {
+      throw new IllegalArgumentException("queueSize must be positive");
+    }
+    this.executor = executor;
+    this.queueSize = queueSize;
+  }
+
+  @Override
+  public void processAdd(AddUpdateCommand cmd) throws IOException {
+    // loaders may reuse the command for the next document
+    AddUpdateCommand copy = (AddUpdateCommand) cmd.clone();
+    synchronized (this) {
+      while (failure == null && queue.size() >= queueSize) {
+        awaitWorker();
+      }
+      throwFailure();
+      queue.add(copy);
+      if (!workerRunning) {
+        workerRunning = true;
+        try {
+          executor.execute(this::work);
+        } catch (RuntimeException e) {
+          workerRunning = false;
+          queue.clear();
+          throw e;
+        }
+      } else {
+        notifyAll();
+      }
+    }
+  }
+
+  private void work() {
+    try {
+      while (true) {
+        AddUpdateCommand cmd;
+        synchronized (this) {
+          while (queue.isEmpty() && !closed) {
+            wait();
+          }
+          if (queue.isEmpty()) {
+            return;
+          }
+          cmd = queue.poll();
+          processing = true;
+          notifyAll();
+        }
+        try {
+          next.processAdd(cmd);
+        } catch (Throwable t) {
+          synchronized (this) {
+            failure = t;
+            queue.clear();
+          }
+          return;
+        } finally {
+          synchronized (this) {
+            processing = false;
+            notifyAll();
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      synchronized (this) {
+        if (failure == null) {
+          failure = e;
+        }
+        queue.clear();
+      }
+    } finally {
+      synchronized (this) {
+        workerRunning = false;
+        notifyAll();
+      }
+    }
+  }
+
+  /** Waits for the queued adds to be processed, and throws the error of any that failed */
+  private synchronized void drain() throws IOException {
+    while (failure == null && (processing || !queue.isEmpty())) {
+      awaitWorker();
+    }
+    throwFailure();
+  }
+
+  private void awaitWorker() {
+    try {
+      wait();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SolrException(
+          SolrException.ErrorCode.SERVER_ERROR, "Interrupted while waiting for queued adds", e);
+    }
+  }
+
+  /** Throws the error of the add that failed. Must be called while synchronized. */
+  private void throwFailure() throws IOException {
+    if (failure == null) {
+      return;
+    }
+    if (failureThrown) {
+      throw new SolrException(
+          SolrException.ErrorCode.SERVER_ERROR, "A previous add of this request failed");
+    }
+    failureThrown = true;
+    rethrow(failure);
+  }
+
+  private static void rethrow(Throwable t) throws IOException {
+    if (t instanceof IOException e) {
+      throw e;
+    } else if (t instanceof RuntimeException e) {
+      throw e;
+    } else if (t instanceof Error e) {
+      throw e;
+    }
+    throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, t);
+  }
+
+  @Override
+  public void processDelete(DeleteUpdateCommand cmd) throws IOException {
+    drain();
+    super.processDelete(cmd);
+  }
+
+  @Override
+  public void processMergeIndexes(MergeIndexesCommand cmd) throws IOException {
+    drain();
+    super.processMergeIndexes(cmd);
+  }
+
+  @Override
+  public void processCommit(CommitUpdateCommand cmd) throws IOException {
+    drain();
+    super.processCommit(cmd);
+  }
+
+  @Override
+  public void processRollback(RollbackUpdateCommand cmd) throws IOException {
+    drain();
+    super.processRollback(cmd);
+  }
+
+  @Override
+  public void finish() throws IOException {
+    Throwable unreported = null;
+    synchronized (this) {
+      while (processing || (failure == null && !queue.isEmpty())) {
+        awaitWorker();
+      }
+      if (failure != null && !failureThrown) {
+        failureThrown = true;
+        unreported = failure;
+      }
+    }
+    // the rest of the chain must finish even if an add failed, as it would have synchronously
+    try {
+      super.finish();
+    } catch (Throwable t) {
+      if (unreported != null) {
+        unreported.addSuppressed(t);
+        rethrow(unreported);
+      }
+      throw t;
+    }
+    if (unreported != null) {
+      rethrow(unreported);
+    }
+  }
+
+  @Override
+  protected void doClose() {
+    synchronized (this) {
+      // the worker stops once the adds already queued are processed
+      closed = true;
+      notifyAll();
+      boolean interrupted = false;
+      while (workerRunning) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      if (failure != null && !failureThrown) {
+        // neither processAdd nor finish was called again to report it
+        log.warn("A queued add failed while closing", failure);
+      }
+    }
+  }
+}
@@ -39,6 +39,16 @@ public class MockSortSpecBuilder {
     return this;
   }
 
+  public MockSortSpecBuilder withCount(int count) {
+    Mockito.when(sortSpec.getCount()).thenReturn(count);
+    return this;
+  }
+
+  public MockSortSpecBuilder withOffset(int offset) {
+    Mockito.when(sortSpec.getOffset()).thenReturn(offset);
+    return this;
+  }
+
   public MockSortSpecBuilder withIncludesNonScoreOrDocSortField(boolean include) {
     Mockito.when(sortSpec.includesNonScoreOrDocField()).thenReturn(include);
     return this;
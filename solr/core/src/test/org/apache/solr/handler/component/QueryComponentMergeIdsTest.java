@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.component;
+
+import org.apache.lucene.search.SortField;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.search.SortSpec;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class QueryComponentMergeIdsTest extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void setup() {
+    assumeWorkingMockito();
+  }
+
+  @Test
+  public void testTopDocsAcrossShards() {
+    // shard k returns ids "k_0".."k_4" with scores interleaved across shards
+    final int numShards = 4;
+    final int docsPerShard = 5;
+    MockShardRequest shardRequest = MockShardRequest.create();
+    for (int k = 0; k < numShards; k++) {
+      SolrDocumentList docs = new SolrDocumentList();
+      for (int i = 0; i < docsPerShard; i++) {
+        docs.add(doc(k + "_" + i, 100f - i * numShards - k));
+      }
+      if (k == numShards - 1) {
+        // a duplicate far below the cut must still be discounted from numFound
+        docs.add(doc("0_0", 0f));
+      }
+      docs.setNumFound(docs.size());
+      shardRequest.withShardResponse(new NamedList<>(), docs);
+      shardRequest.responses.get(k).setShard("shard" + k);
+    }
+
+    SortSpec sortSpec =
+        MockSortSpecBuilder.create()
+            .withSortFields(new SortField[] {SortField.FIELD_SCORE})
+            .withIncludesNonScoreOrDocSortField(false)
+            .withCount(6)
+            .build();
+    MockResponseBuilder rb = MockResponseBuilder.create().withSortSpec(sortSpec);
+    new QueryComponent().mergeIds(rb, shardRequest);
+
+    assertEquals(numShards * docsPerShard, rb.getResponseDocs().getNumFound());
+    assertEquals(6, rb.resultIds.size());
+    String[] expected = {"0_0", "1_0", "2_0", "3_0", "0_1", "1_1"};
+    for (int pos = 0; pos < expected.length; pos++) {
+      ShardDoc shardDoc = rb.resultIds.get(expected[pos]);
+      assertNotNull(expected[pos], shardDoc);
+      assertEquals(pos, shardDoc.positionInResponse);
+    }
+  }
+
+  @Test
+  public void testOffsetAndDuplicates() {
+    MockShardRequest shardRequest = MockShardRequest.create();
+    String[][] ids = {{"a", "b"}, {"c", "b", "d"}, {"e"}};
+    float[][] scores = {{10f, 1f}, {9f, 8f, 7f}, {8.5f}};
+    for (int k = 0; k < ids.length; k++) {
+      SolrDocumentList docs = new SolrDocumentList();
+      for (int i = 0; i < ids[k].length; i++) {
+        docs.add(doc(ids[k][i], scores[k][i]));
+      }
+      docs.setNumFound(docs.size());
+      shardRequest.withShardResponse(new NamedList<>(), docs);
+      shardRequest.responses.get(k).setShard("shard" + k);
+    }
+
+    SortSpec sortSpec =
+        MockSortSpecBuilder.create()
+            .withSortFields(new SortField[] {SortField.FIELD_SCORE})
+            .withIncludesNonScoreOrDocSortField(false)
+            .withOffset(2)
+            .withCount(2)
+            .build();
+    MockResponseBuilder rb = MockResponseBuilder.create().withSortSpec(sortSpec);
+    new QueryComponent().mergeIds(rb, shardRequest);
+
+    // the first response's "b" is kept, although the dup of the second one ranks higher
+    assertEquals(5, rb.getResponseDocs().getNumFound());
+    assertEquals(2, rb.getResponseDocs().size());
+    assertEquals(2, rb.resultIds.size());
+    assertEquals(0, rb.resultIds.get("e").positionInResponse);
+    assertEquals(1, rb.resultIds.get("d").positionInResponse);
+  }
+
+  private static SolrDocument doc(String id, float score) {
+    SolrDocument doc = new SolrDocument();
+    doc.addField("id", id);
+    doc.addField("score", score);
+    return doc;
+  }
+}
@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.client.solrj.impl.LBSolrClient;
 import org.apache.solr.client.solrj.request.QueryRequest;
@@ -33,6 +34,7 @@ import org.apache.solr.common.params.ShardParams;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.core.CoreContainer;
 import org.apache.solr.core.MockShardHandlerFactory;
+import org.apache.solr.core.PluginInfo;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -162,6 +164,19 @@ public class TestShardHandlerFactory extends SolrTestCaseJ4 {
     cc.shutdown();
   }
 
+  @Test
+  public void testUseVirtualThreads() throws Exception {
+    NamedList<Object> initArgs = new NamedList<>();
+    initArgs.add(HttpShardHandlerFactory.INIT_USE_VIRTUAL_THREADS, true);
+    HttpShardHandlerFactory factory = new HttpShardHandlerFactory();
+    try {
+      factory.init(new PluginInfo("shardHandlerFactory", Map.of(), initArgs, null));
+      assertTrue(factory.commExecutor.submit(() -> Thread.currentThread().isVirtual()).get());
+    } finally {
+      factory.close();
+    }
+  }
+
   /** Test {@link ShardHandler#setShardAttributesToParams} */
   @Test
   public void testSetShardAttributesToParams() {
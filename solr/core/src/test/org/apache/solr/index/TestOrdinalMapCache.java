@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.index;
+
+import java.util.Map;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.metrics.MetricsMap;
+import org.apache.solr.metrics.SolrMetricManager;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Verify that searchers over the same segments share ordinal maps, built while warming. */
+public class TestOrdinalMapCache extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    System.setProperty("solr.ordinalMapCache.enabled", "true");
+    System.setProperty("solr.ordinalMapCache.warmFields", "tags_ss");
+    systemSetPropertySolrTestsMergePolicyFactory(NoMergePolicyFactory.class.getName());
+    initCore("solrconfig.xml", "schema_latest.xml");
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    System.clearProperty("solr.ordinalMapCache.enabled");
+    System.clearProperty("solr.ordinalMapCache.warmFields");
+    systemClearPropertySolrTestsMergePolicyFactory();
+  }
+
+  private static Map<String, Object> ordinalMapCacheMetrics(SolrCore core) {
+    return ((MetricsMap)
+            ((SolrMetricManager.GaugeWrapper<?>)
+                    core.getCoreMetricManager()
+                        .getRegistry()
+                        .getMetrics()
+                        .get("SEARCHER.searcher.ordinalMapCache"))
+                .getGauge())
+        .getValue();
+  }
+
+  @Test
+  public void testReuseAcrossCommits() throws Exception {
+    assertNotNull(h.getCore().getOrdinalMapCache());
+
+    for (int seg = 0; seg < 2; seg++) {
+      for (int i = 0; i < 10; i++) {
+        int id = seg * 10 + i;
+        assertU(adoc("id", Integer.toString(id), "tags_ss", "t" + (id % 2), "tags_ss", "u"));
+      }
+      assertU(commit());
+    }
+    // built while the searcher over both segments warmed
+    Map<String, Object> metrics = ordinalMapCacheMetrics(h.getCore());
+    assertEquals(1L, metrics.get("misses"));
+    assertEquals(1, metrics.get("size"));
+    assertTrue((long) metrics.get("ramBytesUsed") > 0);
+
+    String facet = "{tags:{type:terms, field:tags_ss, method:dv}}";
+    assertJQ(
+        req("q", "*:*", "rows", "0", "json.facet", facet),
+        "facets=={count:20, tags:{buckets:[{val:u,count:20},{val:t0,count:10},{val:t1,count:10}]}}");
+    assertEquals(1L, ordinalMapCacheMetrics(h.getCore()).get("misses"));
+
+    // deletions keep the segments, and so the ordinal map
+    assertU(delI("0"));
+    assertU(commit());
+    assertJQ(
+        req("q", "*:*", "rows", "0", "json.facet", facet),
+        "facets=={count:19, tags:{buckets:[{val:u,count:19},{val:t1,count:10},{val:t0,count:9}]}}");
+    metrics = ordinalMapCacheMetrics(h.getCore());
+    assertEquals(1L, metrics.get("misses"));
+    assertTrue((long) metrics.get("hits") >= 1);
+
+    // a new segment needs a new map
+    assertU(adoc("id", "20", "tags_ss", "t2"));
+    assertU(commit());
+    assertJQ(
+        req("q", "tags_ss:t2", "rows", "0", "json.facet", facet),
+        "facets=={count:1, tags:{buckets:[{val:t2,count:1}]}}");
+    metrics = ordinalMapCacheMetrics(h.getCore());
+    assertEquals(2L, metrics.get("misses"));
+    assertEquals(1, metrics.get("size"));
+  }
+}
@@ -92,6 +92,20 @@ public class TestJavaBinResponseWriter extends SolrTestCaseJ4 {
     req.close();
   }
 
+  /** Non-stored docValues strings are written from their UTF-8 bytes */
+  public void testDocValuesAsStoredStrings() throws Exception {
+    String s = "Thailand (ประเทศไทย)";
+    assertU(adoc("id", "102", "foo_sdv", s, "flag_bdv", "true"));
+    assertU(commit());
+    SolrQueryRequest req = req("q", "id:102", "fl", "foo_sdv,flag_bdv");
+    SolrQueryResponse rsp = h.queryAndResponse(null, req);
+    NamedList<Object> res = JavaBinResponseWriter.getParsedResponse(req, rsp);
+    SolrDocument document = ((SolrDocumentList) res.get("response")).get(0);
+    assertEquals(s, document.getFieldValue("foo_sdv"));
+    assertEquals(Boolean.TRUE, document.getFieldValue("flag_bdv"));
+    req.close();
+  }
+
   public void testOmitHeader() throws Exception {
     SolrQueryRequest req = req("q", "*:*", "omitHeader", "true");
     SolrQueryResponse rsp = h.queryAndResponse(null, req);
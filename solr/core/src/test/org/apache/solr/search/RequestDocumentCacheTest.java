@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.util.Collections;
+import java.util.Set;
+import org.apache.lucene.document.Document;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrRequestInfo;
+import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.schema.IndexSchema;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class RequestDocumentCacheTest extends SolrTestCaseJ4 {
+
+  private static final String ID_FLD = "str";
+  private static final String BODY_FLD = "body";
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    System.setProperty("managed.schema.mutable", "true");
+    System.setProperty(
+        "managed.schema.resourceName", "schema-one-field-no-dynamic-field-unique-key.xml");
+    System.setProperty("enable.update.log", "false");
+    System.setProperty("requestDocumentCacheSize", "10");
+
+    initCore("solrconfig-managed-schema.xml", "ignoredSchemaName");
+
+    boolean PERSIST_FALSE = false; // don't write to test resource dir
+    IndexSchema schema = h.getCore().getLatestSchema();
+    schema =
+        schema.addFields(
+            Collections.singletonList(schema.newField(BODY_FLD, "string", map())),
+            Collections.emptyMap(),
+            PERSIST_FALSE);
+    h.getCore().setLatestSchema(schema);
+
+    assertU(adoc(ID_FLD, "101", BODY_FLD, "some body"));
+    assertU(commit());
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    System.clearProperty("requestDocumentCacheSize");
+  }
+
+  @Test
+  public void testDecodedOncePerRequest() throws Exception {
+    SolrQueryRequest req = req();
+    SolrRequestInfo.setRequestInfo(new SolrRequestInfo(req, new SolrQueryResponse()));
+    try {
+      SolrIndexSearcher searcher = req.getSearcher();
+      Document d = searcher.getDocFetcher().doc(0, Set.of(ID_FLD));
+      assertNull(d.get(BODY_FLD));
+      // another fetcher of the same request gets the same instance
+      assertSame(d, searcher.getDocFetcher().doc(0, Set.of(ID_FLD)));
+
+      // asking for more fields loads the union
+      Document all = searcher.getDocFetcher().doc(0, Set.of(BODY_FLD));
+      assertNotSame(d, all);
+      assertEquals("101", all.get(ID_FLD));
+      assertEquals("some body", all.get(BODY_FLD));
+      assertSame(all, searcher.getDocFetcher().doc(0, Set.of(ID_FLD)));
+      assertSame(all, searcher.getDocFetcher().doc(0, Set.of(ID_FLD, BODY_FLD)));
+    } finally {
+      SolrRequestInfo.clearRequestInfo();
+      req.close();
+    }
+
+    // outside of a request every load decodes the doc again
+    h.getCore()
+        .withSearcher(
+            searcher -> {
+              Document d = searcher.getDocFetcher().doc(0, Set.of(ID_FLD));
+              assertNotSame(d, searcher.getDocFetcher().doc(0, Set.of(ID_FLD)));
+              return null;
+            });
+  }
+}
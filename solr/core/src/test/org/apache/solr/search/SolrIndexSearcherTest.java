@@ -478,6 +478,30 @@ public class SolrIndexSearcherTest extends SolrTestCaseJ4 {
             });
   }
 
+  public void testSearchDocSetBits() throws Exception {
+    h.getCore()
+        .withSearcher(
+            searcher -> {
+              for (Query q :
+                  new Query[] {
+                    new TermQuery(new Term("field2_s", "0")),
+                    new TermQuery(new Term("field4_t", "150")),
+                    new TermQuery(new Term("field1_s", "missing"))
+                  }) {
+                DocSetCollector collector = new DocSetCollector(searcher.maxDoc());
+                searcher.search(q, collector);
+                DocSet expected = collector.getDocSet();
+                DocSet actual =
+                    new BitDocSet(new MultiThreadedSearcher(searcher).searchDocSetBits(q));
+                assertTrue(q.toString(), DocSetUtil.equals(expected, actual));
+                assertTrue(
+                    q.toString(),
+                    DocSetUtil.equals(expected, DocSetUtil.createDocSetGeneric(searcher, q)));
+              }
+              return null;
+            });
+  }
+
   private QueryCommand createBasicQueryCommand(
       int minExactCount, int length, String field, String q) {
     return createBasicQueryCommand(minExactCount, length, 0, field, q);
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import com.carrotsearch.randomizedtesting.annotations.ParametersFactory;
+import java.util.Arrays;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.solr.SolrTestCaseJ4;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** filterCache entries kept off-heap or compressed stay that way when callers need their bits. */
+public class TestCompactFilterCache extends SolrTestCaseJ4 {
+  private final String property;
+  private final Class<? extends DocSet> entryClass;
+
+  public TestCompactFilterCache(String property, Class<? extends DocSet> entryClass) {
+    this.property = property;
+    this.entryClass = entryClass;
+  }
+
+  @ParametersFactory
+  public static Iterable<Object[]> parameters() {
+    return Arrays.asList(
+        new Object[][] {
+          {"solr.filterCache.offHeap", OffHeapBitDocSet.class},
+          {"solr.filterCache.compress", RoaringDocSet.class}
+        });
+  }
+
+  @Before
+  public void initCompactCore() throws Exception {
+    System.setProperty(property, "true");
+    initCore("solrconfig.xml", "schema_latest.xml");
+    // a single run of docs, which compresses well
+    for (int i = 0; i < 4000; i++) {
+      assertU(adoc("id", Integer.toString(i), "field_s", i < 2000 ? "low" : "high"));
+    }
+    assertU(commit());
+  }
+
+  @After
+  public void afterTest() {
+    deleteCore();
+    System.clearProperty(property);
+  }
+
+  @Test
+  public void testDocSetBitsKeepEntry() throws Exception {
+    final Query query = new TermQuery(new Term("field_s", "low"));
+    h.getCore()
+        .withSearcher(
+            searcher -> {
+              final DocSet cached = searcher.getDocSet(query);
+              assertSame(entryClass, cached.getClass());
+
+              BitDocSet bits = searcher.getDocSetBits(query);
+              assertEquals(2000, bits.size());
+              assertEquals(2000, cached.intersectionSize(bits));
+              assertEquals(2000, cached.intersection(bits).size());
+
+              // the cached entry was not replaced by the on-heap copy
+              assertSame(cached, searcher.getFilterCache().get(query));
+              return null;
+            });
+  }
+}
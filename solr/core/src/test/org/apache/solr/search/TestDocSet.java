@@ -107,6 +107,14 @@ public class TestDocSet extends SolrTestCase {
     return new BitDocSet(bs);
   }
 
+  public DocSet getOffHeapBitDocSet(FixedBitSet bs) {
+    return OffHeapBitDocSet.copyOf(new BitDocSet(bs));
+  }
+
+  public DocSet getRoaringDocSet(FixedBitSet bs) {
+    return RoaringDocSet.fromBits(bs);
+  }
+
   public DocSlice getDocSlice(FixedBitSet bs) {
     int len = bs.cardinality();
     int[] arr = new int[len + 5];
@@ -128,7 +136,7 @@ public class TestDocSet extends SolrTestCase {
   }
 
   public DocSet getDocSet(FixedBitSet bs) {
-    switch (rand.nextInt(9)) {
+    switch (rand.nextInt(11)) {
       case 0:
       case 1:
       case 2:
@@ -145,6 +153,10 @@ public class TestDocSet extends SolrTestCase {
         return getIntDocSet(bs);
       case 8:
         return getIntDocSet(bs);
+      case 9:
+        return getOffHeapBitDocSet(bs);
+      case 10:
+        return getRoaringDocSet(bs);
     }
     return null;
   }
@@ -575,16 +587,19 @@ public class TestDocSet extends SolrTestCase {
   }
 
   /**
-   * Tests equivalence among {@link DocIdSetIterator} instances retrieved from {@link BitDocSet} and
-   * {@link SortedIntDocSet} implementations, via {@link DocSet#makeQuery()} and directly via {@link
-   * DocSet#iterator(LeafReaderContext)}. Also tests corresponding random-access {@link Bits}
-   * instances retrieved via {@link DocSet#makeQuery()}/ {@link DocIdSet#bits()}.
+   * Tests equivalence among {@link DocIdSetIterator} instances retrieved from {@link BitDocSet},
+   * {@link SortedIntDocSet}, {@link OffHeapBitDocSet} and {@link RoaringDocSet} implementations,
+   * via {@link DocSet#makeQuery()} and directly via {@link DocSet#iterator(LeafReaderContext)}.
+   * Also tests corresponding random-access {@link Bits} instances retrieved via {@link
+   * DocSet#makeQuery()}/ {@link DocIdSet#bits()}.
    */
   public void doFilterTest(IndexReader reader) throws IOException {
     IndexReaderContext topLevelContext = reader.getContext();
     FixedBitSet bs = getRandomSet(reader.maxDoc(), rand.nextInt(reader.maxDoc() + 1));
     DocSet a = new BitDocSet(bs);
     DocSet b = getIntDocSet(bs);
+    DocSet c = getOffHeapBitDocSet(bs);
+    DocSet d = getRoaringDocSet(bs);
 
     //    Query fa = a.makeQuery();
     //    Query fb = b.makeQuery();
@@ -604,7 +619,9 @@ public class TestDocSet extends SolrTestCase {
       doTestIteratorEqual(
           getExpectedBits(a, readerContext),
           () -> a.iterator(readerContext),
-          () -> b.iterator(readerContext));
+          () -> b.iterator(readerContext),
+          () -> c.iterator(readerContext),
+          () -> d.iterator(readerContext));
     }
 
     int nReaders = leaves.size();
@@ -614,7 +631,9 @@ public class TestDocSet extends SolrTestCase {
       doTestIteratorEqual(
           getExpectedBits(a, readerContext),
           () -> a.iterator(readerContext),
-          () -> b.iterator(readerContext));
+          () -> b.iterator(readerContext),
+          () -> c.iterator(readerContext),
+          () -> d.iterator(readerContext));
     }
   }
 
@@ -630,6 +649,87 @@ public class TestDocSet extends SolrTestCase {
     }
   }
 
+  public void testOffHeapBitDocSetAccounting() {
+    OffHeapBitDocSet set = OffHeapBitDocSet.copyOf(new BitDocSet(new FixedBitSet(64 * 1000)));
+    assertEquals(1000L * Long.BYTES, set.offHeapBytesUsed());
+    assertTrue(set.ramBytesUsed() > set.offHeapBytesUsed());
+    assertSame(set.getClass(), set.clone().getClass());
+  }
+
+  public void testOffHeapBitDocSetNavigation() {
+    final int maxDoc = rand.nextInt(1000) + 1;
+    final FixedBitSet bs = getRandomSet(maxDoc, rand.nextInt(maxDoc + 1));
+    final OffHeapBitDocSet set = OffHeapBitDocSet.copyOf(new BitDocSet(bs));
+    for (int doc = 0; doc < maxDoc; doc++) {
+      assertEquals(bs.prevSetBit(doc), set.prevSetBit(doc));
+      assertEquals(bs.nextSetBit(doc), set.nextSetBit(doc));
+    }
+    assertEquals(bs.prevSetBit(maxDoc - 1), set.prevSetBit(maxDoc + 10));
+    assertEquals(DocIdSetIterator.NO_MORE_DOCS, set.nextSetBit(maxDoc));
+  }
+
+  public void testRoaringDocSetContainers() {
+    // spans several 64K blocks, each filled in a way that favors a different container
+    final int maxDoc = (1 << 16) * 4 + rand.nextInt(1 << 16);
+    final FixedBitSet bs = new FixedBitSet(maxDoc);
+    for (int i = 0; i < 1000; i++) {
+      bs.set(rand.nextInt(1 << 16)); // sparse: array
+    }
+    for (int i = 1 << 16; i < 2 << 16; i++) {
+      if (rand.nextBoolean()) bs.set(i); // dense: bitmap
+    }
+    bs.set((2 << 16) + 100, (2 << 16) + 30000); // clustered: runs
+    bs.set((2 << 16) + 40000, (2 << 16) + 40001);
+    // block 3 stays empty
+    for (int i = 4 << 16; i < maxDoc; i += 1 + rand.nextInt(100)) {
+      bs.set(i);
+    }
+
+    final DocSet expected = new BitDocSet(bs);
+    final RoaringDocSet roaring = RoaringDocSet.fromBits(bs);
+    checkEqual(bs, roaring);
+    iter(expected, roaring);
+    for (int i = 0; i < 1000; i++) {
+      int doc = rand.nextInt(maxDoc);
+      assertEquals(bs.get(doc), roaring.exists(doc));
+      assertEquals(bs.prevSetBit(doc), roaring.prevSetBit(doc));
+      assertEquals(bs.nextSetBit(doc), roaring.nextSetBit(doc));
+    }
+    assertTrue(roaring.ramBytesUsed() < expected.ramBytesUsed());
+    assertEquals(roaring.ramBytesUsed(), RoaringDocSet.compressedRamBytesUsed(bs));
+
+    final FixedBitSet other = getRandomSet(maxDoc, rand.nextInt(maxDoc));
+    for (DocSet o :
+        new DocSet[] {new BitDocSet(other), getIntDocSet(other), getRoaringDocSet(other)}) {
+      FixedBitSet and = bs.clone();
+      and.and(other);
+      FixedBitSet andNot = bs.clone();
+      andNot.andNot(other);
+      checkEqual(and, roaring.intersection(o));
+      checkEqual(and, o.intersection(roaring));
+      checkEqual(andNot, roaring.andNot(o));
+      assertEquals(and.cardinality(), roaring.intersectionSize(o));
+      assertEquals(and.cardinality(), o.intersectionSize(roaring));
+      assertEquals(and.cardinality() > 0, roaring.intersects(o));
+    }
+  }
+
+  public void testRoaringDocSetCompress() {
+    final int maxDoc = (1 << 16) * 2 + rand.nextInt(1 << 16);
+    final FixedBitSet dense = new FixedBitSet(maxDoc);
+    for (int i = 0; i < maxDoc; i++) {
+      if (rand.nextBoolean()) dense.set(i);
+    }
+    final BitDocSet denseSet = new BitDocSet(dense);
+    assertSame(denseSet, RoaringDocSet.compress(denseSet, 0.75f));
+
+    final FixedBitSet clustered = new FixedBitSet(maxDoc);
+    clustered.set(1000, 1000 + rand.nextInt(maxDoc - 1000));
+    final DocSet compressed = RoaringDocSet.compress(new BitDocSet(clustered), 0.75f);
+    assertTrue(compressed instanceof RoaringDocSet);
+    checkEqual(clustered, compressed);
+  }
+
   private static final int MAX_SRC_SIZE = 130; // push _just_ into 3 `long` "words"
 
   public void testCopyBitsToRange() {
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.util.Map;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.index.NoMergePolicyFactory;
+import org.apache.solr.metrics.MetricsMap;
+import org.apache.solr.metrics.SolrMetricManager;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Verify that filterCache misses are computed from reusable per-segment entries. */
+public class TestSegmentFilterCache extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    System.setProperty("solr.segmentFilterCache.enabled", "true");
+    systemSetPropertySolrTestsMergePolicyFactory(NoMergePolicyFactory.class.getName());
+    initCore("solrconfig.xml", "schema_latest.xml");
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    System.clearProperty("solr.segmentFilterCache.enabled");
+    systemClearPropertySolrTestsMergePolicyFactory();
+  }
+
+  private static Map<String, Object> segmentFilterCacheMetrics(SolrCore core) {
+    return ((MetricsMap)
+            ((SolrMetricManager.GaugeWrapper<?>)
+                    core.getCoreMetricManager()
+                        .getRegistry()
+                        .getMetrics()
+                        .get("SEARCHER.searcher.segmentFilterCache"))
+                .getGauge())
+        .getValue();
+  }
+
+  @Test
+  public void testReuseAcrossCommits() throws Exception {
+    assertNotNull(h.getCore().getSegmentFilterCache());
+
+    for (int i = 0; i < 10; i++) {
+      assertU(adoc("id", Integer.toString(i), "field_s", i % 2 == 0 ? "even" : "odd"));
+    }
+    assertU(commit());
+    assertJQ(req("q", "*:*", "fq", "field_s:even"), "/response/numFound==5");
+    assertEquals(1L, segmentFilterCacheMetrics(h.getCore()).get("misses"));
+
+    // a new segment: only it needs to be computed, the first one is reused
+    for (int i = 10; i < 20; i++) {
+      assertU(adoc("id", Integer.toString(i), "field_s", i % 2 == 0 ? "even" : "odd"));
+    }
+    assertU(commit());
+    assertJQ(req("q", "*:*", "fq", "field_s:even"), "/response/numFound==10");
+    Map<String, Object> metrics = segmentFilterCacheMetrics(h.getCore());
+    assertEquals(2L, metrics.get("misses"));
+    assertTrue((long) metrics.get("hits") >= 1);
+
+    // deletions are applied when assembling, without invalidating the segment entries
+    assertU(delI("0"));
+    assertU(delI("10"));
+    assertU(commit());
+    assertJQ(req("q", "*:*", "fq", "field_s:even"), "/response/numFound==8");
+    assertJQ(req("q", "*:*", "fq", "-field_s:even"), "/response/numFound==10");
+    assertEquals(2L, segmentFilterCacheMetrics(h.getCore()).get("misses"));
+
+    // cache=false filters never touch the per-segment cache
+    assertJQ(req("q", "*:*", "fq", "{!cache=false}field_s:odd"), "/response/numFound==10");
+    assertEquals(2L, segmentFilterCacheMetrics(h.getCore()).get("misses"));
+
+    // filterCache misses of requests with query limits are computed per segment too
+    assertJQ(
+        req("q", "*:*", "fq", "field_s:odd", "timeAllowed", "100000"), "/response/numFound==10");
+    assertEquals(4L, segmentFilterCacheMetrics(h.getCore()).get("misses"));
+  }
+}
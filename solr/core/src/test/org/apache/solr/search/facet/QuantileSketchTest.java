@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.apache.solr.SolrTestCase;
+import org.junit.Test;
+
+public class QuantileSketchTest extends SolrTestCase {
+
+  private static void assertRelativeError(double expected, double actual) {
+    assertEquals(
+        expected, actual, Math.abs(expected) * QuantileSketch.RELATIVE_ACCURACY * 1.0001 + 1e-12);
+  }
+
+  private static double exactQuantile(double[] sorted, double q) {
+    return sorted[(int) (q * (sorted.length - 1))];
+  }
+
+  @Test
+  public void testAccuracy() {
+    Random r = random();
+    int n = atLeast(10000);
+    double[] values = new double[n];
+    QuantileSketch sketch = new QuantileSketch();
+    for (int i = 0; i < n; i++) {
+      // spans several orders of magnitude, both signs
+      values[i] = (r.nextBoolean() ? 1 : -1) * Math.exp(r.nextGaussian());
+      sketch.add(values[i]);
+    }
+    Arrays.sort(values);
+    assertEquals(n, sketch.getCount());
+    for (double q : new double[] {0, 0.01, 0.25, 0.5, 0.75, 0.95, 0.99, 1}) {
+      assertRelativeError(exactQuantile(values, q), sketch.quantile(q));
+    }
+    assertEquals(values[0], sketch.quantile(0), 0);
+    assertEquals(values[n - 1], sketch.quantile(1), 0);
+  }
+
+  @Test
+  public void testMergeAndSerialize() {
+    Random r = random();
+    QuantileSketch all = new QuantileSketch();
+    QuantileSketch merged = null;
+    double[] values = new double[3000];
+    for (int shard = 0; shard < 3; shard++) {
+      QuantileSketch sketch = new QuantileSketch();
+      for (int i = 0; i < 1000; i++) {
+        double value = r.nextInt(10) == 0 ? 0 : 1 + r.nextDouble() * 1000 * (shard + 1);
+        values[shard * 1000 + i] = value;
+        sketch.add(value);
+        all.add(value);
+      }
+      QuantileSketch copy = QuantileSketch.fromBytes(sketch.toBytes());
+      if (merged == null) {
+        merged = copy;
+      } else {
+        merged.merge(copy);
+      }
+    }
+    Arrays.sort(values);
+    assertEquals(all.getCount(), merged.getCount());
+    for (double q : new double[] {0, 0.05, 0.5, 0.9, 0.99, 1}) {
+      assertEquals(all.quantile(q), merged.quantile(q), 0);
+      assertRelativeError(exactQuantile(values, q), merged.quantile(q));
+    }
+    assertEquals(values[0], merged.quantile(0), 0);
+    assertEquals(values[values.length - 1], merged.quantile(1), 0);
+  }
+
+  @Test
+  public void testBoundedSize() {
+    QuantileSketch sketch = new QuantileSketch();
+    // far more bins than the sketch keeps
+    for (int i = -300; i <= 300; i++) {
+      sketch.add(Math.pow(10, i));
+    }
+    byte[] bytes = sketch.toBytes();
+    assertTrue(bytes.length < QuantileSketch.MAX_BINS * 4);
+    // high quantiles keep their accuracy, low ones are collapsed
+    assertRelativeError(1e300, sketch.quantile(1));
+    assertRelativeError(1e295, sketch.quantile(595.5 / 600));
+    assertTrue(sketch.quantile(0.1) > 1e-240);
+
+    assertTrue(Double.isNaN(new QuantileSketch().quantile(0.5)));
+  }
+}
@@ -1119,6 +1119,57 @@ public class TestJsonFacets extends SolrTestCaseHS {
             + "}");
   }
 
+  public void testApproximateTerms() throws Exception {
+    Client client = Client.localClient();
+    client.deleteByQuery("*:*", null);
+    // a few frequent terms, then many terms that occur once, over two segments
+    for (int i = 0; i < 100; i++) {
+      String cat = i < 30 ? "A" : i < 45 ? "B" : i < 55 ? "C" : "s" + i;
+      client.add(
+          sdoc("id", Integer.toString(i), "cat_s", cat, "num_i", Integer.toString(i % 2)), null);
+      if (i == 49) {
+        client.commit();
+      }
+    }
+    client.commit();
+
+    // all the terms of the domain are candidates: the counts are exact, nothing is missed
+    assertJQ(
+        req(
+            "rows", "0",
+            "q", "cat_s:(A B C)",
+            "json.facet",
+            "{top:{type:terms, field:cat_s, limit:2, approximate:true, facet:{n:'sum(num_i)'}}}"),
+        "facets=={count:55,"
+            + " top:{buckets:[{val:A, count:30, n:15.0}, {val:B, count:15, n:7.0}],"
+            + " maxMissedCount:0}}");
+
+    // more terms than candidates: the frequent ones are still found, with exact counts
+    assertJQ(
+        req(
+            "rows", "0",
+            "q", "*:*",
+            "json.facet", "{top:{type:terms, field:cat_s, limit:1, approximate:true}}"),
+        "facets/count==100",
+        "facets/top/buckets==[{val:A, count:30}]");
+    assertJQ(
+        req(
+            "rows", "0",
+            "q", "*:*",
+            "json.facet", "{top:{type:terms, field:cat_s, limit:3, approximate:true}}"),
+        "facets/count==100",
+        "facets/top/buckets==[{val:A, count:30}, {val:B, count:15}, {val:C, count:10}]");
+
+    // options that need every term fall back to exact counting
+    assertJQ(
+        req(
+            "rows", "0",
+            "q", "cat_s:(A B C)",
+            "json.facet",
+            "{top:{type:terms, field:cat_s, limit:1, approximate:true, numBuckets:true}}"),
+        "facets=={count:55, top:{numBuckets:3, buckets:[{val:A, count:30}]}}");
+  }
+
   public void testDomainJoinSelf() throws Exception {
     Client client = Client.localClient();
     indexSimple(client);
@@ -2345,6 +2396,19 @@ public class TestJsonFacets extends SolrTestCaseHS {
             + "  f1:{  'buckets':[{ val:'A', count:2, n1:[4.0,2.0,4.0] }, { val:'B', count:3, n1:[-5.0,-9.0,11.0] }]}"
             + ", f2:{  'buckets':[{ val:'B', count:3, n1:[-5.0,-9.0,11.0]}, { val:'A', count:2, n1:[4.0,2.0,4.0] }]} }");
 
+    // sketch percentiles are approximate, except for the min and max which are kept exactly
+    client.testJQ(
+        params(
+            p,
+            "q",
+            "*:*",
+            "json.facet",
+            "{f1:{terms:{${terms} field:${cat_s}, sort:'n1 desc', facet:{n1:'percentileSketch(${num_d},100,0)'}  }}"
+                + " , f2:{terms:{${terms} field:${cat_s}, sort:'n1 asc', facet:{n1:'percentileSketch(${num_d},100)'}  }} }"),
+        "facets=={ 'count':6, "
+            + "  f1:{  'buckets':[{ val:'B', count:3, n1:[11.0,-9.0] }, { val:'A', count:2, n1:[4.0,2.0] }]}"
+            + ", f2:{  'buckets':[{ val:'A', count:2, n1:4.0 }, { val:'B', count:3, n1:11.0 }]} }");
+
     // test sorting by count/index order
     client.testJQ(
         params(
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.core.NodeConfig;
+import org.apache.solr.index.NoMergePolicyFactory;
+import org.apache.solr.update.UpdateShardHandlerConfig;
+import org.apache.solr.util.TestHarness;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Terms facets counted per slice on the searcher's executor must match serial counting. */
+public class TestJsonFacetsParallel extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    systemSetPropertySolrTestsMergePolicyFactory(NoMergePolicyFactory.class.getName());
+    NodeConfig nodeConfig =
+        new NodeConfig.NodeConfigBuilder("testNode", TEST_PATH())
+            .setIndexSearcherExecutorThreads(4)
+            .setUpdateShardHandlerConfig(UpdateShardHandlerConfig.TEST_DEFAULT)
+            .build();
+    createCoreContainer(
+        nodeConfig,
+        new TestHarness.TestCoresLocator(
+            DEFAULT_TEST_CORENAME,
+            initAndGetDataDir().toAbsolutePath().toString(),
+            "solrconfig.xml",
+            "schema_latest.xml"));
+    h.coreName = DEFAULT_TEST_CORENAME;
+
+    // one segment per commit; more than 5 segments are split in several slices
+    int id = 0;
+    for (int seg = 0; seg < 12; seg++) {
+      for (int i = 0; i < 10; i++, id++) {
+        assertU(
+            adoc(
+                "id", Integer.toString(id),
+                "cat_s", "c" + (id % 3),
+                "tags_ss", "t" + (id % 2),
+                "tags_ss", "t" + (id % 5),
+                "num_i", Integer.toString(id % 4)));
+      }
+      assertU(commit());
+    }
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    systemClearPropertySolrTestsMergePolicyFactory();
+  }
+
+  @Test
+  public void testCounts() throws Exception {
+    final int numSlices = h.getCore().withSearcher(searcher -> searcher.getSlices().length);
+    assertTrue(numSlices > 1);
+
+    for (String perSeg : new String[] {"true", "false"}) {
+      assertJQ(
+          req(
+              "q", "*:*",
+              "rows", "0",
+              "json.facet",
+              "{cats:{type:terms, field:cat_s, method:dv, perSeg:" + perSeg + "},"
+                  + " tags:{type:terms, field:tags_ss, method:dv, perSeg:" + perSeg + "}}"),
+          "facets=={count:120,"
+              + " cats:{buckets:[{val:c0,count:40},{val:c1,count:40},{val:c2,count:40}]},"
+              + " tags:{buckets:[{val:t0,count:72},{val:t1,count:72},"
+              + "{val:t2,count:24},{val:t3,count:24},{val:t4,count:24}]}}");
+    }
+
+    assertJQ(
+        req(
+            "q", "*:*",
+            "fq", "-cat_s:c2",
+            "rows", "0",
+            "json.facet",
+            "{cats:{type:terms, field:cat_s, method:hashdv},"
+                + " nums:{type:terms, field:num_i, method:hashdv}}"),
+        "facets=={count:80,"
+            + " cats:{buckets:[{val:c0,count:40},{val:c1,count:40}]},"
+            + " nums:{buckets:[{val:0,count:20},{val:1,count:20},{val:2,count:20},"
+            + "{val:3,count:20}]}}");
+
+    // both facets were counted on the executor, one task per slice
+    assertJQ(
+        req(
+            "q", "*:*",
+            "rows", "0",
+            "debug", "true",
+            "json.facet",
+            "{cats:{type:terms, field:cat_s, method:dv, perSeg:true},"
+                + " nums:{type:terms, field:num_i, method:hashdv}}"),
+        "/debug/facet-trace/sub-facet/[0]/"
+            + FacetFieldProcessor.PARALLEL_SLICES_DEBUG_KEY
+            + "=="
+            + numSlices,
+        "/debug/facet-trace/sub-facet/[1]/"
+            + FacetFieldProcessor.PARALLEL_SLICES_DEBUG_KEY
+            + "=="
+            + numSlices);
+  }
+
+  @Test
+  public void testSinglePassCounts() throws Exception {
+    for (String singlePass : new String[] {"true", "false"}) {
+      assertJQ(
+          req(
+              "q", "*:*",
+              "rows", "0",
+              MultiFieldCounts.SINGLE_PASS_PARAM, singlePass,
+              "json.facet",
+              "{cats:{type:terms, field:cat_s},"
+                  + " tags:{type:terms, field:tags_ss, limit:2},"
+                  + " moreTags:{type:terms, field:tags_ss, sort:'index desc', limit:1},"
+                  + " c0:{type:query, q:'cat_s:c0', facet:{"
+                  + "   cats:{type:terms, field:cat_s}, tags:{type:terms, field:tags_ss}}}}"),
+          "facets=={count:120,"
+              + " cats:{buckets:[{val:c0,count:40},{val:c1,count:40},{val:c2,count:40}]},"
+              + " tags:{buckets:[{val:t0,count:72},{val:t1,count:72}]},"
+              + " moreTags:{buckets:[{val:t4,count:24}]},"
+              + " c0:{count:40, cats:{buckets:[{val:c0,count:40}]},"
+              + "   tags:{buckets:[{val:t0,count:24},{val:t1,count:24},"
+              + "{val:t2,count:8},{val:t3,count:8},{val:t4,count:8}]}}}");
+    }
+
+    // the sibling facets took their counts from the single pass
+    assertJQ(
+        req(
+            "q", "*:*",
+            "rows", "0",
+            "debug", "true",
+            MultiFieldCounts.SINGLE_PASS_PARAM, "true",
+            "json.facet", "{cats:{type:terms, field:cat_s}, tags:{type:terms, field:tags_ss}}"),
+        "/debug/facet-trace/sub-facet/[0]/" + MultiFieldCounts.SINGLE_PASS_DEBUG_KEY + "==true",
+        "/debug/facet-trace/sub-facet/[1]/" + MultiFieldCounts.SINGLE_PASS_DEBUG_KEY + "==true");
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.index.NoMergePolicyFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Multi-valued fields without docValues may be faceted with values uninverted per segment. */
+public class TestJsonFacetsPerSegmentUninverted extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    systemSetPropertySolrTestsMergePolicyFactory(NoMergePolicyFactory.class.getName());
+    System.setProperty("perSegmentUninvertedFacets", "true");
+    initCore("solrconfig.xml", "schema_latest.xml");
+
+    int id = 0;
+    for (int seg = 0; seg < 3; seg++) {
+      for (int i = 0; i < 10; i++, id++) {
+        assertU(adoc("id", Integer.toString(id), "features", "f" + (id % 2) + " g" + (id % 5)));
+      }
+      assertU(commit());
+    }
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    System.clearProperty("perSegmentUninvertedFacets");
+    systemClearPropertySolrTestsMergePolicyFactory();
+  }
+
+  @Test
+  public void testProcessorAndCounts() throws Exception {
+    assertTrue(h.getCore().getSolrConfig().perSegmentUninvertedFacets);
+    String expected =
+        "facets=={count:30, features:{buckets:[{val:f0,count:15},{val:f1,count:15},"
+            + "{val:g0,count:6},{val:g1,count:6},{val:g2,count:6}]}}";
+
+    for (String method : new String[] {"smart", "dv", "uif"}) {
+      assertJQ(
+          req(
+              "q", "*:*",
+              "rows", "0",
+              "json.facet",
+              "{features:{type:terms, field:features, limit:5, method:" + method + "}}"),
+          expected);
+    }
+
+    // smart picks the per-segment values, an explicit uif is kept
+    assertJQ(
+        req(
+            "q", "*:*",
+            "rows", "0",
+            "debug", "true",
+            "json.facet", "{features:{type:terms, field:features}}"),
+        "/debug/facet-trace/sub-facet/[0]/processor=='FacetFieldProcessorByArrayDV'");
+    assertJQ(
+        req(
+            "q", "*:*",
+            "rows", "0",
+            "debug", "true",
+            "json.facet", "{features:{type:terms, field:features, method:uif}}"),
+        "/debug/facet-trace/sub-facet/[0]/processor=='FacetFieldProcessorByArrayUIF'");
+  }
+}
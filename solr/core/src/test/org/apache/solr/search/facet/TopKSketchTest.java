@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.apache.solr.SolrTestCase;
+import org.junit.Test;
+
+public class TopKSketchTest extends SolrTestCase {
+
+  @Test
+  public void testFewKeysAreExact() {
+    TopKSketch sketch = new TopKSketch(10);
+    for (int i = 0; i < 100; i++) {
+      sketch.add(i % 7 * 3);
+    }
+    assertArrayEquals(new int[] {0, 3, 6, 9, 12, 15, 18}, sketch.candidates());
+    assertEquals(0, sketch.maxMissedCount());
+  }
+
+  @Test
+  public void testHeavyHittersAndBound() {
+    Random r = random();
+    int numKeys = atLeast(5000);
+    int[] counts = new int[numKeys];
+    List<Integer> stream = new ArrayList<>();
+    for (int key = 0; key < numKeys; key++) {
+      // a few frequent keys, the rest occurring at most three times
+      counts[key] = key < 5 ? 1000 - key * 100 : 1 + r.nextInt(3);
+      for (int i = 0; i < counts[key]; i++) {
+        stream.add(key);
+      }
+    }
+    Collections.shuffle(stream, r);
+
+    TopKSketch sketch = new TopKSketch(20);
+    for (int key : stream) {
+      sketch.add(key);
+    }
+    int[] candidates = sketch.candidates();
+    assertEquals(20, candidates.length);
+    long maxMissedCount = sketch.maxMissedCount();
+    assertTrue(maxMissedCount > 0);
+    assertTrue("bound: " + maxMissedCount, maxMissedCount < 600);
+    for (int key = 0; key < numKeys; key++) {
+      if (Arrays.binarySearch(candidates, key) < 0) {
+        assertTrue("key " + key, counts[key] <= maxMissedCount);
+      }
+    }
+    for (int key = 0; key < 5; key++) {
+      assertTrue("key " + key, Arrays.binarySearch(candidates, key) >= 0);
+    }
+  }
+}
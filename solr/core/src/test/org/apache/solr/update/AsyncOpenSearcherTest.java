@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.core.SolrEventListener;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Tests opening the searchers of commits in the background, with {@code asyncOpenSearcher}. */
+public class AsyncOpenSearcherTest extends SolrTestCaseJ4 {
+
+  private WarmingListener listener;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    System.setProperty("solr.updateHandler.asyncOpenSearcher", "true");
+    System.setProperty("enable.update.log", "false"); // schema12 doesn't support _version_
+    initCore("solrconfig.xml", "schema12.xml");
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    System.clearProperty("solr.updateHandler.asyncOpenSearcher");
+    System.clearProperty("enable.update.log");
+  }
+
+  @Override
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    clearIndex();
+    assertU(commit());
+    // the core may have been reloaded by a previous test
+    listener = new WarmingListener();
+    h.getCore().registerNewSearcherListener(listener);
+  }
+
+  @Test
+  public void testWaitSearcher() throws Exception {
+    listener.delayMs = 500;
+    assertU(adoc("id", "1"));
+    assertU(commit("softCommit", "true"));
+    // returned only once the slowly warmed searcher was registered
+    assertEquals(1, numDocs());
+
+    assertU(adoc("id", "2"));
+    assertU(commit());
+    assertEquals(2, numDocs());
+  }
+
+  @Test
+  public void testConcurrentSoftCommitsShareOpen() throws Exception {
+    blockFirstOpen();
+
+    // both arrive while the first open is warming, so they share the next one
+    assertU(adoc("id", "2"));
+    assertU(adoc("id", "3"));
+    Thread[] committers = new Thread[2];
+    for (int i = 0; i < committers.length; i++) {
+      committers[i] =
+          new Thread(() -> assertU(commit("softCommit", "true", "waitSearcher", "false")));
+      committers[i].start();
+    }
+    for (Thread committer : committers) {
+      committer.join(TimeUnit.SECONDS.toMillis(30));
+      assertFalse(committer.isAlive());
+    }
+    listener.block.countDown();
+
+    // queued behind any other open
+    assertU(adoc("id", "4"));
+    assertU(commit("softCommit", "true"));
+    assertEquals(4, numDocs());
+    assertEquals(3, listener.newSearcherCount.get());
+  }
+
+  @Test
+  public void testHardCommitMergedIntoPendingOpen() throws Exception {
+    blockFirstOpen();
+    assertU(adoc("id", "2"));
+    assertU(commit("softCommit", "true", "waitSearcher", "false"));
+
+    // shares the open of the soft commit, which must then open over the new commit point
+    assertU(adoc("id", "3"));
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread committer =
+        new Thread(
+            () -> {
+              try {
+                assertU(commit("openSearcher", "true"));
+              } catch (Throwable t) {
+                failure.set(t);
+              }
+            });
+    committer.start();
+    // the commit waits for the searcher
+    committer.join(500);
+    assertTrue(committer.isAlive());
+
+    listener.block.countDown();
+    committer.join(TimeUnit.SECONDS.toMillis(30));
+    assertFalse(committer.isAlive());
+    assertNull(failure.get());
+
+    assertEquals(2, listener.newSearcherCount.get());
+    final SolrCore core = h.getCore();
+    core.withSearcher(
+        searcher -> {
+          assertEquals(3, searcher.getIndexReader().numDocs());
+          assertEquals(
+              core.getDeletionPolicy().getLatestCommit().getGeneration(),
+              searcher.getRawReader().getIndexCommit().getGeneration());
+          return null;
+        });
+  }
+
+  @Test
+  public void testCloseWithPendingOpen() throws Exception {
+    blockFirstOpen();
+    assertU(adoc("id", "2"));
+    // a hard commit, so that the docs are still there after the reload
+    assertU(commit("waitSearcher", "false"));
+
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread reloader =
+        new Thread(
+            () -> {
+              try {
+                h.reload();
+              } catch (Throwable t) {
+                failure.set(t);
+              }
+            });
+    reloader.start();
+    // give the close of the old core a chance to find the pending open
+    reloader.join(1000);
+    listener.block.countDown();
+    reloader.join(TimeUnit.SECONDS.toMillis(60));
+    assertFalse("closing the core hung", reloader.isAlive());
+    assertNull(failure.get());
+
+    // the new core sees the committed docs
+    assertEquals(2, numDocs());
+  }
+
+  /** Starts an open whose warming blocks until {@code listener.block} is released. */
+  private void blockFirstOpen() throws Exception {
+    listener.block = new CountDownLatch(1);
+    assertU(adoc("id", "1"));
+    assertU(commit("softCommit", "true", "waitSearcher", "false"));
+    assertTrue(listener.warming.await(30, TimeUnit.SECONDS));
+  }
+
+  private static int numDocs() throws Exception {
+    return h.getCore().withSearcher(searcher -> searcher.getIndexReader().numDocs());
+  }
+
+  static class WarmingListener implements SolrEventListener {
+    final AtomicInteger newSearcherCount = new AtomicInteger(0);
+    final CountDownLatch warming = new CountDownLatch(1);
+    volatile CountDownLatch block;
+    volatile long delayMs;
+
+    @Override
+    public void postCommit() {}
+
+    @Override
+    public void postSoftCommit() {}
+
+    @Override
+    public void newSearcher(SolrIndexSearcher newSearcher, SolrIndexSearcher currentSearcher) {
+      newSearcherCount.incrementAndGet();
+      warming.countDown();
+      try {
+        if (block != null) {
+          block.await();
+        }
+        if (delayMs > 0) {
+          Thread.sleep(delayMs);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
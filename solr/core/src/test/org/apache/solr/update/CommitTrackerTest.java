@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import org.apache.solr.SolrTestCase;
+import org.junit.Test;
+
+public class CommitTrackerTest extends SolrTestCase {
+
+  @Test
+  public void testAdaptiveTime() {
+    // disabled, or not above maxTime
+    assertEquals(1000, CommitTracker.adaptiveTime(1000, -1, 5000));
+    assertEquals(1000, CommitTracker.adaptiveTime(1000, 1000, 5000));
+    assertEquals(-1, CommitTracker.adaptiveTime(-1, 10000, 5000));
+
+    // fast commits keep maxTime
+    assertEquals(1000, CommitTracker.adaptiveTime(1000, 10000, 0));
+    assertEquals(1000, CommitTracker.adaptiveTime(1000, 10000, 250));
+    // slow commits stretch it, up to maxAdaptiveTime
+    assertEquals(2000, CommitTracker.adaptiveTime(1000, 10000, 500));
+    assertEquals(10000, CommitTracker.adaptiveTime(1000, 10000, 5000));
+  }
+}
@@ -37,6 +37,7 @@ import org.apache.solr.common.SolrInputField;
 import org.apache.solr.common.util.ByteArrayUtf8CharSequence;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.schema.FieldType;
+import org.apache.solr.schema.IndexSchema;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -340,6 +341,57 @@ public class DocumentBuilderTest extends SolrTestCaseJ4 {
     assertEquals(testValue, out.get("large_max_chars"));
   }
 
+  @Test
+  public void testReuseFields() {
+    IndexSchema schema = h.getCore().getLatestSchema();
+
+    for (int i = 0; i < 3; i++) {
+      SolrInputDocument doc = new SolrInputDocument();
+      doc.addField("id", "doc" + i);
+      doc.addField("foo_i1", i);
+      doc.addField("foo_l1", Long.toString(Long.MAX_VALUE - i));
+      doc.addField("foo_s1", new ByteArrayUtf8CharSequence("value " + i));
+      doc.addField("foo_s", "a" + i);
+      doc.addField("foo_s", "b" + i);
+      doc.addField("title", "title " + i);
+
+      Document expected = DocumentBuilder.toDocument(doc, schema, false, true, false);
+      Document reused = DocumentBuilder.toDocument(doc, schema, false, true, true);
+      assertEquals(expected.getFields().size(), reused.getFields().size());
+      for (int f = 0; f < expected.getFields().size(); f++) {
+        IndexableField e = expected.getFields().get(f);
+        IndexableField r = reused.getFields().get(f);
+        assertEquals(e.name(), r.name());
+        assertEquals(e.getClass(), r.getClass());
+        assertEquals(e.stringValue(), r.stringValue());
+        assertEquals(e.numericValue(), r.numericValue());
+        assertEquals(e.binaryValue(), r.binaryValue());
+        assertEquals(e.fieldType().stored(), r.fieldType().stored());
+        assertEquals(e.fieldType().indexOptions(), r.fieldType().indexOptions());
+        assertEquals(e.fieldType().docValuesType(), r.fieldType().docValuesType());
+        assertEquals(e.fieldType().pointDimensionCount(), r.fieldType().pointDimensionCount());
+      }
+    }
+
+    // the fields of a single valued string are set to the values of the next document
+    SolrInputDocument doc = new SolrInputDocument();
+    doc.addField("id", "first");
+    Document first = DocumentBuilder.toDocument(doc, schema, false, true, true);
+    doc.setField("id", "second");
+    Document second = DocumentBuilder.toDocument(doc, schema, false, true, true);
+    assertSame(first.getField("id"), second.getField("id"));
+    assertEquals("second", first.get("id"));
+
+    // but not those of multi valued fields
+    doc = new SolrInputDocument();
+    doc.addField("foo_s", "first");
+    first = DocumentBuilder.toDocument(doc, schema, false, true, true);
+    doc.setField("foo_s", "second");
+    second = DocumentBuilder.toDocument(doc, schema, false, true, true);
+    assertNotSame(first.getField("foo_s"), second.getField("foo_s"));
+    assertEquals("first", first.get("foo_s"));
+  }
+
   @Test
   public void denseVector_shouldReturnOneIndexableFieldAndOneStoredFieldPerVectorElement() {
     SolrCore core = h.getCore();
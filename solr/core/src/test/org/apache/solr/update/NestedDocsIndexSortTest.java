@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.util.List;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Tests indexing nested documents into a core with an index sort. */
+public class NestedDocsIndexSortTest extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    initCore("solrconfig-sortingmergepolicyfactory.xml", "schema.xml");
+  }
+
+  @Test
+  public void testChildIds() {
+    SolrInputDocument parent = sdoc("id", "p1", "timestamp_i_dvo", "1");
+    for (int i = 0; i < 3; i++) {
+      parent.addChildDocument(sdoc("id", "c" + i, "timestamp_i_dvo", Integer.toString(i + 2)));
+    }
+    assertU(adoc(parent));
+    // a single document after the block, built with the fields reused across documents
+    assertU(adoc("id", "d1", "timestamp_i_dvo", "5"));
+    assertU(commit());
+
+    assertQ(req("q", "_root_:p1"), "//*[@numFound='4']");
+    for (String id : List.of("p1", "c0", "c1", "c2", "d1")) {
+      assertQ(
+          req("q", "id:" + id, "fl", "id"),
+          "//*[@numFound='1']",
+          "//result/doc/str[@name='id'][.='" + id + "']");
+    }
+  }
+}
@@ -374,6 +374,7 @@ public class SolrCmdDistributorTest extends BaseDistributedSearchTestCase {
     testDeletes(true, false);
     getRfFromResponseShouldNotCloseTheInputStream();
     testStuckUpdates();
+    testCoalescedAdds();
   }
 
   private void testDeletes(boolean dbq, boolean withFailures) throws Exception {
@@ -889,6 +890,74 @@ public class SolrCmdDistributorTest extends BaseDistributedSearchTestCase {
     }
   }
 
+  private void testCoalescedAdds() throws Exception {
+    UpdateCoalescer coalescer =
+        new UpdateCoalescer(
+            updateShardHandler.getUpdateOnlyHttpClient(),
+            updateShardHandler.getUpdateExecutor(),
+            1,
+            100);
+    long numFoundBefore = controlClient.query(new SolrQuery("*:*")).getResults().getNumFound();
+    ZkNodeProps nodeProps =
+        new ZkNodeProps(
+            ZkStateReader.BASE_URL_PROP,
+            ((HttpSolrClient) controlClient).getBaseURL(),
+            ZkStateReader.CORE_NAME_PROP,
+            controlClient.getDefaultCollection());
+    List<Node> nodes = List.of(new StdNode(new ZkCoreNodeProps(nodeProps)));
+    ZkNodeProps deadProps =
+        new ZkNodeProps(
+            ZkStateReader.BASE_URL_PROP, DEAD_HOST_1 + "/solr", ZkStateReader.CORE_NAME_PROP, "");
+    List<Node> deadNodes =
+        List.of(new StdNode(new ZkCoreNodeProps(deadProps), "collection1", "shard1", 0));
+
+    // the adds of both distributors share the coalescer, the failing one only reports its own
+    try (SolrCmdDistributor cmdDistrib1 =
+            new SolrCmdDistributor(new StreamingSolrClients(updateShardHandler), 0, coalescer);
+        SolrCmdDistributor cmdDistrib2 =
+            new SolrCmdDistributor(new StreamingSolrClients(updateShardHandler), 0, coalescer)) {
+      for (int i = 0; i < 10; i++) {
+        for (SolrCmdDistributor cmdDistrib : List.of(cmdDistrib1, cmdDistrib2)) {
+          AddUpdateCommand cmd = new AddUpdateCommand(null);
+          cmd.solrDoc = sdoc("id", uniqueId.incrementAndGet());
+          cmdDistrib.distribAdd(cmd, nodes, new ModifiableSolrParams());
+        }
+      }
+      // rejected by the replica, without failing the adds coalesced with it
+      AddUpdateCommand badCmd = new AddUpdateCommand(null);
+      badCmd.solrDoc = sdoc("id", uniqueId.incrementAndGet(), "a_i", "not a number");
+      cmdDistrib2.distribAdd(badCmd, nodes, new ModifiableSolrParams());
+      for (int i = 0; i < 10; i++) {
+        AddUpdateCommand cmd = new AddUpdateCommand(null);
+        cmd.solrDoc = sdoc("id", uniqueId.incrementAndGet());
+        cmdDistrib1.distribAdd(cmd, nodes, new ModifiableSolrParams());
+      }
+      // the delete is streamed, and must be applied after the coalesced add it follows
+      AddUpdateCommand deletedCmd = new AddUpdateCommand(null);
+      deletedCmd.solrDoc = sdoc("id", uniqueId.incrementAndGet());
+      cmdDistrib1.distribAdd(deletedCmd, nodes, new ModifiableSolrParams());
+      DeleteUpdateCommand dcmd = new DeleteUpdateCommand(null);
+      dcmd.setId(deletedCmd.solrDoc.getFieldValue("id").toString());
+      cmdDistrib1.distribDelete(dcmd, nodes, new ModifiableSolrParams());
+
+      AddUpdateCommand cmd = new AddUpdateCommand(null);
+      cmd.solrDoc = sdoc("id", uniqueId.incrementAndGet());
+      cmdDistrib2.distribAdd(cmd, deadNodes, new ModifiableSolrParams());
+
+      cmdDistrib1.finish();
+      cmdDistrib2.finish();
+      assertEquals(cmdDistrib1.getErrors().toString(), 0, cmdDistrib1.getErrors().size());
+      assertEquals(cmdDistrib2.getErrors().toString(), 2, cmdDistrib2.getErrors().size());
+      assertSame(badCmd, cmdDistrib2.getErrors().get(0).req.cmd);
+      assertEquals(400, cmdDistrib2.getErrors().get(0).statusCode);
+      assertSame(deadNodes.get(0), cmdDistrib2.getErrors().get(1).req.node);
+    }
+
+    controlClient.commit();
+    long numFoundAfter = controlClient.query(new SolrQuery("*:*")).getResults().getNumFound();
+    assertEquals(numFoundBefore + 30, numFoundAfter);
+  }
+
   @Override
   public void distribTearDown() throws Exception {
     updateShardHandler.close();
@@ -20,8 +20,10 @@ package org.apache.solr.update;
 import static org.apache.solr.update.UpdateLogTest.buildAddUpdateCommand;
 import static org.hamcrest.core.StringContains.containsString;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -603,6 +605,44 @@ public class TestInPlaceUpdatesStandalone extends SolrTestCaseJ4 {
         "//result/doc[2]/int[@name='[docid]'][.='" + childDocid2 + "']");
   }
 
+  @Test
+  public void testUpdatingBinaryDocValues() throws Exception {
+    long version = addAndGetVersion(sdoc("id", "1", "title_s", "first"), null);
+    assertU(commit("softCommit", "false"));
+    int docid = getDocId("1");
+
+    for (String status : new String[] {"active", "archived"}) {
+      byte[] value = status.getBytes(StandardCharsets.UTF_8);
+      version =
+          addAndAssertVersion(
+              version,
+              "id",
+              "1",
+              "status_bin_dvo",
+              map("set", Base64.getEncoder().encodeToString(value)));
+      assertU(commit("softCommit", "false"));
+
+      SolrDocument doc =
+          client
+              .query(params("q", "id:1", "fl", "title_s,status_bin_dvo,[docid]"))
+              .getResults()
+              .get(0);
+      assertEquals(docid, doc.getFieldValue("[docid]"));
+      assertEquals("first", doc.getFieldValue("title_s"));
+      assertArrayEquals(value, (byte[]) doc.getFieldValue("status_bin_dvo"));
+    }
+
+    // binary values can't be incremented, and sorted docValues can't be updated by Lucene
+    assertEquals(
+        Collections.emptySet(),
+        callComputeInPlaceUpdatableFields(
+            sdoc("id", "1", "_version_", 42L, "status_bin_dvo", map("inc", 1))));
+    assertEquals(
+        Collections.emptySet(),
+        callComputeInPlaceUpdatableFields(
+            sdoc("id", "1", "_version_", 42L, "status_s_dvo", map("set", "active"))));
+  }
+
   @Test
   public void testUpdateTwoDifferentFields() throws Exception {
     long version1 =
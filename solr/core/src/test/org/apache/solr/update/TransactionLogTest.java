@@ -19,11 +19,16 @@ package org.apache.solr.update;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import org.apache.solr.SolrTestCase;
 import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.apache.solr.update.TransactionLog.LogReader;
 import org.junit.Test;
 
@@ -71,4 +76,47 @@ public class TransactionLogTest extends SolrTestCase {
       assertEquals(uuid, (UUID) doc.getFieldValue("uuid"));
     }
   }
+
+  @Test
+  public void testConcurrentFsync() throws Exception {
+    String tlogFileName =
+        String.format(
+            Locale.ROOT, UpdateLog.LOG_FILENAME_PATTERN, UpdateLog.TLOG_NAME, Long.MAX_VALUE);
+    Path logFile = createTempDir().resolve(tlogFileName);
+    try (TransactionLog tlog = new TransactionLog(logFile, null)) {
+      assertEquals(0, tlog.getSyncedPosition());
+
+      int threads = 4;
+      ExecutorService executor =
+          ExecutorUtil.newMDCAwareFixedThreadPool(
+              threads, new SolrNamedThreadFactory("testConcurrentFsync"));
+      try {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+          futures.add(
+              executor.submit(
+                  () -> {
+                    for (int i = 0; i < 50; i++) {
+                      AddUpdateCommand cmd = new AddUpdateCommand(null);
+                      cmd.solrDoc = new SolrInputDocument("id", Integer.toString(i));
+                      long pos = tlog.write(cmd);
+                      tlog.finish(UpdateLog.SyncLevel.FSYNC);
+                      // whoever forced the log, this record is covered once finish returns
+                      assertTrue(tlog.getSyncedPosition() > pos);
+                    }
+                  }));
+        }
+        for (Future<?> future : futures) {
+          future.get();
+        }
+      } finally {
+        ExecutorUtil.shutdownAndAwaitTermination(executor);
+      }
+      assertEquals(tlog.position(), tlog.getSyncedPosition());
+
+      // nothing new to sync
+      tlog.finish(UpdateLog.SyncLevel.FSYNC);
+      assertEquals(tlog.position(), tlog.getSyncedPosition());
+    }
+  }
 }
@@ -20,6 +20,11 @@ import static org.apache.solr.common.params.CommonParams.VERSION_FIELD;
 import static org.hamcrest.core.StringContains.containsString;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.util.BytesRef;
 import org.apache.solr.SolrTestCaseJ4;
@@ -218,6 +223,118 @@ public class UpdateLogTest extends SolrTestCaseJ4 {
     }
   }
 
+  @Test
+  public void testLookupVersionWhileMapsRotate() throws Exception {
+    final BytesRef indexedId = new BytesRef("rotating");
+    final AtomicLong completed = new AtomicLong(-1);
+    final AtomicBoolean done = new AtomicBoolean();
+    final AtomicReference<String> failure = new AtomicReference<>();
+
+    // the latest version is always in map or prevMap, even while they are shifted by commits
+    Thread reader =
+        new Thread(
+            () -> {
+              while (!done.get() && failure.get() == null) {
+                long expected = completed.get();
+                Long version = ulog.lookupVersion(indexedId);
+                if (expected >= 0 && (version == null || version < expected)) {
+                  failure.set("expected at least " + expected + " but got " + version);
+                }
+              }
+            });
+    reader.start();
+    try {
+      for (long version = 1000; version < 1500 && failure.get() == null; version++) {
+        ulogAdd(ulog, null, sdoc("id", "rotating", "_version_", Long.toString(version)));
+        completed.set(version);
+        if (version % 10 == 0) {
+          ulogCommit(ulog);
+        }
+      }
+    } finally {
+      done.set(true);
+      reader.join();
+    }
+    assertNull(failure.get(), failure.get());
+    assertEquals(Long.valueOf(1499), ulog.lookupVersion(indexedId));
+  }
+
+  @Test
+  public void testRecentUpdatesReuseScannedLogs() {
+    ulogAdd(ulog, null, sdoc("id", "recent1", "_version_", "2000"));
+    ulogCommit(ulog);
+    ulogAdd(ulog, null, sdoc("id", "recent2", "_version_", "2001"));
+
+    TransactionLog oldLog = ulog.logs.peekFirst();
+    try (UpdateLog.RecentUpdates recent = ulog.getRecentUpdates()) {
+      assertEquals(List.of(2001L, 2000L), recent.getVersions(2));
+    }
+    UpdateLog.ReverseScan scan = oldLog.reverseScan;
+    assertNotNull(scan);
+
+    // the committed log didn't change, so it isn't read again
+    ulogAdd(ulog, null, sdoc("id", "recent3", "_version_", "2002"));
+    try (UpdateLog.RecentUpdates recent = ulog.getRecentUpdates()) {
+      assertEquals(List.of(2002L, 2001L, 2000L), recent.getVersions(3));
+      assertNotNull(recent.lookup(2000L));
+    }
+    assertSame(scan, oldLog.reverseScan);
+  }
+
+  @Test
+  public void testRecentUpdatesReleaseScansOutsideWindow() {
+    ulogAdd(ulog, null, sdoc("id", "window1", "_version_", "3000"));
+    ulogCommit(ulog);
+
+    TransactionLog oldLog = ulog.logs.peekFirst();
+    try (UpdateLog.RecentUpdates recent = ulog.getRecentUpdates()) {
+      assertEquals(List.of(3000L), recent.getVersions(1));
+    }
+    assertNotNull(oldLog.reverseScan);
+
+    final int numRecordsToKeep = ulog.numRecordsToKeep;
+    ulog.numRecordsToKeep = 2;
+    try {
+      ulogAdd(ulog, null, sdoc("id", "window2", "_version_", "3001"));
+      ulogAdd(ulog, null, sdoc("id", "window3", "_version_", "3002"));
+      try (UpdateLog.RecentUpdates recent = ulog.getRecentUpdates()) {
+        assertEquals(List.of(3002L, 3001L), recent.getVersions(2));
+      }
+      // the newer log holds all the recent updates, so the scan of the old one is released
+      assertNull(oldLog.reverseScan);
+    } finally {
+      ulog.numRecordsToKeep = numRecordsToKeep;
+    }
+  }
+
+  @Test
+  public void testWaitForReplayTasks() throws Exception {
+    AtomicInteger pendingTasks = new AtomicInteger(2);
+    Thread replayer =
+        new Thread(
+            () -> {
+              try {
+                for (int i = 0; i < 2; i++) {
+                  Thread.sleep(100);
+                  UpdateLog.replayTaskDone(pendingTasks);
+                }
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            });
+    replayer.start();
+    // woken up by the last task, well before the timeout
+    UpdateLog.waitForReplayTasks(pendingTasks, TimeUnit.MINUTES.toMillis(1));
+    assertEquals(0, pendingTasks.get());
+    replayer.join();
+
+    pendingTasks.set(1);
+    SolrException e =
+        expectThrows(SolrException.class, () -> UpdateLog.waitForReplayTasks(pendingTasks, 100));
+    assertEquals(SolrException.ErrorCode.SERVER_ERROR.code, e.code());
+    assertEquals(1, pendingTasks.get());
+  }
+
   /** Simulate a commit on a given updateLog */
   private static void ulogCommit(UpdateLog ulog) {
     try (SolrQueryRequest req = req()) {
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update.processor;
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.UpdateParams;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Runs a chain that depends on the request info with {@link UpdateParams#PIPELINE} enabled. */
+public class PipelinedUpdateChainTest extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    initCore("solrconfig-update-processor-chains.xml", "schema12.xml");
+  }
+
+  @Test
+  public void testTimestampChain() throws Exception {
+    SolrInputDocument[] docs = new SolrInputDocument[50];
+    for (int i = 0; i < docs.length; i++) {
+      docs[i] = sdoc("id", Integer.toString(i), "name", "pipelined");
+    }
+    updateJ(
+        jsonAdd(docs),
+        params(
+            UpdateParams.UPDATE_CHAIN,
+            "default-values",
+            UpdateParams.PIPELINE,
+            "true",
+            // the timestamp is taken from the request's NOW
+            CommonParams.NOW,
+            "1577836800000"));
+    assertU(commit());
+
+    assertQ(
+        req("q", "name:pipelined", "fq", "timestamp:\"2020-01-01T00:00:00Z\""),
+        "//result[@numFound='" + docs.length + "']");
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update.processor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.update.AddUpdateCommand;
+import org.apache.solr.update.DeleteUpdateCommand;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class PipelinedUpdateProcessorTest extends SolrTestCase {
+
+  private static ExecutorService executor;
+
+  @BeforeClass
+  public static void beforeClass() {
+    executor = ExecutorUtil.newMDCAwareCachedThreadPool("pipelinedUpdateProcessorTest");
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    ExecutorUtil.shutdownAndAwaitTermination(executor);
+    executor = null;
+  }
+
+  @Test
+  public void testOrderIsKept() throws IOException {
+    RecordingProcessor recorder = new RecordingProcessor(-1);
+    UpdateRequestProcessor processor = new PipelinedUpdateProcessor(recorder, executor, 3);
+    // the command is reused, as loaders do
+    AddUpdateCommand cmd = new AddUpdateCommand(null);
+    for (int i = 0; i < 100; i++) {
+      cmd.solrDoc = doc(i);
+      processor.processAdd(cmd);
+      cmd.clear();
+    }
+    DeleteUpdateCommand delete = new DeleteUpdateCommand(null);
+    delete.id = "100";
+    processor.processDelete(delete);
+    // adds queued before the delete were processed before it
+    assertEquals(101, recorder.ops.size());
+    assertEquals("del:100", recorder.ops.get(100));
+
+    cmd.solrDoc = doc(101);
+    processor.processAdd(cmd);
+    processor.finish();
+    processor.close();
+
+    for (int i = 0; i < 100; i++) {
+      assertEquals("add:" + i, recorder.ops.get(i));
+    }
+    assertEquals("add:101", recorder.ops.get(101));
+    assertEquals("finish", recorder.ops.get(102));
+  }
+
+  @Test
+  public void testFailureIsThrownOnce() throws IOException {
+    RecordingProcessor recorder = new RecordingProcessor(5);
+    UpdateRequestProcessor processor = new PipelinedUpdateProcessor(recorder, executor, 2);
+    SolrException e =
+        expectThrows(
+            SolrException.class,
+            () -> {
+              for (int i = 0; i < 100; i++) {
+                AddUpdateCommand cmd = new AddUpdateCommand(null);
+                cmd.solrDoc = doc(i);
+                processor.processAdd(cmd);
+              }
+            });
+    assertEquals("doc 5", e.getMessage());
+
+    // the chain still finishes, without reporting the error again
+    processor.finish();
+    processor.close();
+    assertEquals("finish", recorder.ops.getLast());
+    for (int i = 0; i < 5; i++) {
+      assertEquals("add:" + i, recorder.ops.get(i));
+    }
+    // nothing after the failed add was processed
+    assertEquals(6, recorder.ops.size());
+  }
+
+  @Test
+  public void testFailureIsThrownByFinish() throws IOException {
+    RecordingProcessor recorder = new RecordingProcessor(0);
+    UpdateRequestProcessor processor = new PipelinedUpdateProcessor(recorder, executor, 10);
+    AddUpdateCommand cmd = new AddUpdateCommand(null);
+    cmd.solrDoc = doc(0);
+    processor.processAdd(cmd);
+
+    SolrException e = expectThrows(SolrException.class, processor::finish);
+    assertEquals("doc 0", e.getMessage());
+    processor.close();
+    assertEquals(List.of("finish"), recorder.ops);
+  }
+
+  @Test
+  public void testQueuedAddsProcessedOnClose() throws IOException {
+    RecordingProcessor recorder = new RecordingProcessor(-1);
+    UpdateRequestProcessor processor = new PipelinedUpdateProcessor(recorder, executor, 100);
+    for (int i = 0; i < 100; i++) {
+      AddUpdateCommand cmd = new AddUpdateCommand(null);
+      cmd.solrDoc = doc(i);
+      processor.processAdd(cmd);
+    }
+    // closed without finishing, as when parsing the rest of the request fails
+    processor.close();
+    assertEquals(100, recorder.ops.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals("add:" + i, recorder.ops.get(i));
+    }
+  }
+
+  private static SolrInputDocument doc(int id) {
+    SolrInputDocument doc = new SolrInputDocument();
+    doc.addField("id", Integer.toString(id));
+    return doc;
+  }
+
+  /** Records the commands, failing the add of one document */
+  private static class RecordingProcessor extends UpdateRequestProcessor {
+    final List<String> ops = new ArrayList<>();
+    final int failOn;
+    Thread thread;
+
+    RecordingProcessor(int failOn) {
+      super(null);
+      this.failOn = failOn;
+    }
+
+    @Override
+    public void processAdd(AddUpdateCommand cmd) {
+      String id = (String) cmd.solrDoc.getFieldValue("id");
+      if (Integer.toString(failOn).equals(id)) {
+        throw new SolrException(SolrException.ErrorCode.BAD_REQUEST, "doc " + id);
+      }
+      if (thread == null) {
+        thread = Thread.currentThread();
+      }
+      // a single worker runs the chain
+      assertSame(thread, Thread.currentThread());
+      ops.add("add:" + id);
+    }
+
+    @Override
+    public void processDelete(DeleteUpdateCommand cmd) {
+      ops.add("del:" + cmd.id);
+    }
+
+    @Override
+    public void finish() {
+      ops.add("finish");
+    }
+  }
+}
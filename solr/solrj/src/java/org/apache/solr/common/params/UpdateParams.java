@@ -76,4 +76,10 @@ public interface UpdateParams {
    * "In-Place" without re-indexing the entire document.
    */
   public static final String REQUIRE_PARTIAL_DOC_UPDATES_INPLACE = "update.partial.requireInPlace";
+
+  /**
+   * If set to true, documents are run through the update processor chain on another thread while
+   * the request thread parses the next ones.
+   */
+  public static final String PIPELINE = "update.pipeline";
 }
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -323,6 +324,15 @@ public class ExecutorUtil {
 
     @Override
     public void execute(final Runnable command) {
+      super.execute(withSubmitterContext(command, enableSubmitterStackTrace));
+    }
+
+    /**
+     * Wraps the command so that it runs with the MDC and the {@link InheritableThreadLocalProvider}
+     * values of the submitting thread, restoring those of the running thread afterwards.
+     */
+    static Runnable withSubmitterContext(
+        final Runnable command, final boolean enableSubmitterStackTrace) {
       final Map<String, String> submitterContext = MDC.getCopyOfContextMap();
       StringBuilder contextString = new StringBuilder();
       if (submitterContext != null) {
@@ -358,58 +368,100 @@ public class ExecutorUtil {
           providersCopy.get(i).store(reference);
         }
       }
-      super.execute(
-          () -> {
-            isServerPool.set(Boolean.TRUE);
-            if (ctx != null) {
-              for (int i = 0; i < providersCopy.size(); i++) providersCopy.get(i).set(ctx.get(i));
-            }
-            Map<String, String> threadContext = MDC.getCopyOfContextMap();
-            final Thread currentThread = Thread.currentThread();
-            final String oldName = currentThread.getName();
-            if (submitterContext != null && !submitterContext.isEmpty()) {
-              MDC.setContextMap(submitterContext);
-              currentThread.setName(oldName + "-processing-" + submitterContextStr);
-            } else {
-              MDC.clear();
-            }
-            if (enableSubmitterStackTrace) {
-              submitter.set(submitterStackTrace);
-            }
-            try {
-              command.run();
-            } catch (Throwable t) {
-              if (t instanceof OutOfMemoryError) {
-                throw t;
-              }
-              // Flip around the exception cause tree, because it is in reverse order
-              Throwable baseCause = t;
-              Throwable nextCause = submitterStackTrace;
-              while (nextCause != null) {
-                baseCause = new Exception(nextCause.getMessage(), baseCause);
-                baseCause.setStackTrace(nextCause.getStackTrace());
-                nextCause = nextCause.getCause();
-              }
-              log.error(
-                  "Uncaught exception {} thrown by thread: {}",
-                  t,
-                  currentThread.getName(),
-                  baseCause);
-              throw t;
-            } finally {
-              isServerPool.remove();
-              if (threadContext != null && !threadContext.isEmpty()) {
-                MDC.setContextMap(threadContext);
-              } else {
-                MDC.clear();
-              }
-              if (ctx != null) {
-                for (int i = 0; i < providersCopy.size(); i++)
-                  providersCopy.get(i).clean(ctx.get(i));
-              }
-              currentThread.setName(oldName);
-            }
-          });
+      return () -> {
+        isServerPool.set(Boolean.TRUE);
+        if (ctx != null) {
+          for (int i = 0; i < providersCopy.size(); i++) providersCopy.get(i).set(ctx.get(i));
+        }
+        Map<String, String> threadContext = MDC.getCopyOfContextMap();
+        final Thread currentThread = Thread.currentThread();
+        final String oldName = currentThread.getName();
+        if (submitterContext != null && !submitterContext.isEmpty()) {
+          MDC.setContextMap(submitterContext);
+          currentThread.setName(oldName + "-processing-" + submitterContextStr);
+        } else {
+          MDC.clear();
+        }
+        if (enableSubmitterStackTrace) {
+          submitter.set(submitterStackTrace);
+        }
+        try {
+          command.run();
+        } catch (Throwable t) {
+          if (t instanceof OutOfMemoryError) {
+            throw t;
+          }
+          // Flip around the exception cause tree, because it is in reverse order
+          Throwable baseCause = t;
+          Throwable nextCause = submitterStackTrace;
+          while (nextCause != null) {
+            baseCause = new Exception(nextCause.getMessage(), baseCause);
+            baseCause.setStackTrace(nextCause.getStackTrace());
+            nextCause = nextCause.getCause();
+          }
+          log.error(
+              "Uncaught exception {} thrown by thread: {}", t, currentThread.getName(), baseCause);
+          throw t;
+        } finally {
+          isServerPool.remove();
+          if (threadContext != null && !threadContext.isEmpty()) {
+            MDC.setContextMap(threadContext);
+          } else {
+            MDC.clear();
+          }
+          if (ctx != null) {
+            for (int i = 0; i < providersCopy.size(); i++) providersCopy.get(i).clean(ctx.get(i));
+          }
+          currentThread.setName(oldName);
+        }
+      };
+    }
+  }
+
+  /**
+   * An {@link ExecutorService} that runs the tasks on the given executor with the MDC and the
+   * {@link InheritableThreadLocalProvider} values of the submitter, as {@link
+   * MDCAwareThreadPoolExecutor} does. Meant for executors that are not thread pools, such as one
+   * that starts a virtual thread per task.
+   */
+  public static class MDCAwareExecutorService extends AbstractExecutorService {
+    private final ExecutorService delegate;
+    private final boolean enableSubmitterStackTrace;
+
+    public MDCAwareExecutorService(ExecutorService delegate, boolean enableSubmitterStackTrace) {
+      this.delegate = delegate;
+      this.enableSubmitterStackTrace = enableSubmitterStackTrace;
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+      delegate.execute(
+          MDCAwareThreadPoolExecutor.withSubmitterContext(command, enableSubmitterStackTrace));
+    }
+
+    @Override
+    public void shutdown() {
+      delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+      return delegate.awaitTermination(timeout, unit);
     }
   }
 
@@ -109,6 +109,7 @@ public class MiniSolrCloudCluster {
           + "  <str name=\"configSetBaseDir\">${configSetBaseDir:configsets}</str>\n"
           + "  <str name=\"coreRootDirectory\">${coreRootDirectory:.}</str>\n"
           + "  <str name=\"collectionsHandler\">${collectionsHandler:solr.CollectionsHandler}</str>\n"
+          + "  <int name=\"indexSearcherExecutorThreads\">${solr.searchThreads:0}</int>\n"
           + "  <str name=\"allowUrls\">${"
           + TEST_URL_ALLOW_LIST
           + ":}</str>\n"